@@ -0,0 +1,53 @@
+package com.example.ingestiongateway.config;
+
+import com.example.ingestiongateway.util.CompressionCodec;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compression of temp bucket objects, chosen by content type. Files of a
+ * listed type and at least {@code min-size} are compressed while they are
+ * uploaded; everything else is stored as received. Unless
+ * {@code decompress-on-delivery} is off, the worker restores the original
+ * bytes when it copies a file to prod.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.compression")
+public class CompressionProperties {
+
+    private boolean enabled = true;
+
+    private DataSize minSize = DataSize.ofKilobytes(4); // Frame overhead outweighs the gain below this
+
+    private int zstdLevel = CompressionCodec.DEFAULT_ZSTD_LEVEL;
+
+    // false: prod objects stay compressed and consumers decompress using the recorded codec
+    private boolean decompressOnDelivery = true;
+
+    // Media type (without parameters) -> codec
+    private Map<String, CompressionCodec> codecs = new LinkedHashMap<>(Map.of(
+            "text/csv", CompressionCodec.ZSTD,
+            "application/json", CompressionCodec.ZSTD,
+            "application/x-ndjson", CompressionCodec.LZ4,
+            "text/plain", CompressionCodec.LZ4));
+
+    /**
+     * @return the codec to store the file with, or null to store it as is
+     */
+    public CompressionCodec codecFor(String contentType, long size) {
+        if (!enabled || contentType == null || size < minSize.toBytes()) {
+            return null;
+        }
+        int parameters = contentType.indexOf(';');
+        String mediaType = (parameters >= 0 ? contentType.substring(0, parameters) : contentType)
+                .trim().toLowerCase(Locale.ROOT);
+        return codecs.get(mediaType);
+    }
+}
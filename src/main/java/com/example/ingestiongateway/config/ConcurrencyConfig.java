@@ -0,0 +1,94 @@
+package com.example.ingestiongateway.config;
+
+import com.example.ingestiongateway.util.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Thread configuration for request handling, Kafka listeners and the
+ * upload/copy fan-out.
+ * <p>
+ * With {@code app.concurrency.virtual-threads=true} on a Java 21 runtime,
+ * Tomcat requests, Kafka listener containers and transfer tasks all run on
+ * virtual threads, so blocking MinIO/Mongo/Kafka calls no longer hold a
+ * platform thread each. On older runtimes the flag is ignored with a warning
+ * and the platform thread pools are used.
+ */
+@Configuration
+@Slf4j
+public class ConcurrencyConfig {
+
+    private static final String VIRTUAL_THREADS = "app.concurrency.virtual-threads";
+
+    @Value("${" + VIRTUAL_THREADS + ":false}")
+    private boolean virtualThreads;
+
+    @Value("${app.concurrency.transfer-threads:16}")
+    private int transferThreads;
+
+    /**
+     * Runs the per-file MinIO uploads and copies fanned out by
+     * IngestionService and BatchProcessor.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService transferExecutor() {
+        if (virtualThreads) {
+            var executor = VirtualThreads.newThreadPerTaskExecutor("transfer-");
+            if (executor.isPresent()) {
+                log.info("Transfer tasks run on virtual threads");
+                return executor.get();
+            }
+            log.warn("{} is set but Java {} has no virtual threads; using platform threads", VIRTUAL_THREADS,
+                    Runtime.version().feature());
+        }
+        return Executors.newFixedThreadPool(transferThreads, new CustomizableThreadFactory("transfer-"));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = VIRTUAL_THREADS, havingValue = "true")
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> VirtualThreads.newThreadPerTaskExecutor("tomcat-").ifPresent(executor -> {
+            protocolHandler.setExecutor(executor);
+            log.info("Tomcat requests run on virtual threads");
+        });
+    }
+
+    /**
+     * Boot's default listener container factory, with the consumer threads
+     * replaced by virtual threads.
+     */
+    @Bean
+    @ConditionalOnProperty(name = VIRTUAL_THREADS, havingValue = "true")
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> kafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        VirtualThreads.factory("kafka-listener-").ifPresent(threadFactory -> {
+            factory.getContainerProperties().setListenerTaskExecutor(new SimpleAsyncTaskExecutor(threadFactory));
+            log.info("Kafka listeners run on virtual threads");
+        });
+        return factory;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = VIRTUAL_THREADS, havingValue = "true")
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+            @Value("${app.concurrency.pinning-threshold-ms:20}") long thresholdMs) {
+        return new VirtualThreadPinningMonitor(thresholdMs);
+    }
+}
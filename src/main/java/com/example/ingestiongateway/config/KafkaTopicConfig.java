@@ -0,0 +1,33 @@
+package com.example.ingestiongateway.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+/**
+ * Declares the lane topics so Boot's KafkaAdmin creates them with enough
+ * partitions for the lane's listener concurrency (auto-created topics get
+ * the broker default of one).
+ */
+@Configuration
+public class KafkaTopicConfig {
+
+    @Value("${app.worker.topics.ingestion:batch.ingestion.events}")
+    private String ingestionTopic;
+
+    @Bean
+    public NewTopic smallLaneTopic(LaneProperties laneProperties) {
+        return TopicBuilder.name(LaneProperties.topic(ingestionTopic, LaneProperties.SMALL))
+                .partitions(laneProperties.getSmall().getPartitions())
+                .build();
+    }
+
+    @Bean
+    public NewTopic largeLaneTopic(LaneProperties laneProperties) {
+        return TopicBuilder.name(LaneProperties.topic(ingestionTopic, LaneProperties.LARGE))
+                .partitions(laneProperties.getLarge().getPartitions())
+                .build();
+    }
+}
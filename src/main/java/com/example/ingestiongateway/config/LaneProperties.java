@@ -0,0 +1,86 @@
+package com.example.ingestiongateway.config;
+
+import com.example.ingestiongateway.model.BatchDocument;
+import com.example.ingestiongateway.model.FileMetadata;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Size lanes. A batch of at least {@code large-batch-bytes} or
+ * {@code large-batch-files} goes to the large lane, everything else to the
+ * small lane. Each lane has its own topic ({@code <ingestion topic>.<lane>}),
+ * listener concurrency, worker pool and recovery threshold, so bulk loads
+ * never sit in front of small batches.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.lanes")
+public class LaneProperties {
+
+    public static final String SMALL = "small";
+    public static final String LARGE = "large";
+
+    private DataSize largeBatchBytes = DataSize.ofMegabytes(256);
+
+    private int largeBatchFiles = 500;
+
+    private Lane small = new Lane(4, 2, 4, 1000, 8, Duration.ofMinutes(2));
+
+    private Lane large = new Lane(2, 1, 2, 100, 16, Duration.ofMinutes(15));
+
+    @Data
+    public static class Lane {
+        private int partitions; // Of the lane topic, the upper bound on useful listener concurrency
+        private int listenerConcurrency;
+        private int threads; // Batches processed concurrently
+        private int queueCapacity; // When full, the listener hands records back for redelivery
+        private int copyParallelism; // Concurrent tmp -> prod copies per batch
+        private Duration recoveryThreshold; // READY for longer than this is re-published
+
+        public Lane() {
+        }
+
+        public Lane(int partitions, int listenerConcurrency, int threads, int queueCapacity, int copyParallelism,
+                Duration recoveryThreshold) {
+            this.partitions = partitions;
+            this.listenerConcurrency = listenerConcurrency;
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+            this.copyParallelism = copyParallelism;
+            this.recoveryThreshold = recoveryThreshold;
+        }
+    }
+
+    public String laneOf(long totalBytes, int fileCount) {
+        return totalBytes >= largeBatchBytes.toBytes() || fileCount >= largeBatchFiles ? LARGE : SMALL;
+    }
+
+    /**
+     * The lane recorded on the batch, or its classification for batches
+     * written before lanes existed.
+     */
+    public String laneOf(BatchDocument batch) {
+        if (batch.getLane() != null) {
+            return batch.getLane();
+        }
+        long totalBytes = 0;
+        if (batch.getKafkaMetadataAlpha() != null) {
+            for (FileMetadata meta : batch.getKafkaMetadataAlpha()) {
+                totalBytes += meta.size();
+            }
+        }
+        return laneOf(totalBytes, batch.getTransferRequests() != null ? batch.getTransferRequests().size() : 0);
+    }
+
+    public Lane settings(String lane) {
+        return LARGE.equals(lane) ? large : small;
+    }
+
+    public static String topic(String ingestionTopic, String lane) {
+        return ingestionTopic + "." + lane;
+    }
+}
@@ -1,27 +1,138 @@
 package com.example.ingestiongateway.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MinIO clients sharing one tuned OkHttp client: a connection pool sized for
+ * the upload/copy fan-out, a dispatcher capping concurrent requests per MinIO
+ * node, explicit timeouts, and {@link MinioEndpointBalancer} spreading
+ * requests over {@code minio.endpoints}.
+ */
 @Configuration
 public class MinioConfig {
 
     @Value("${minio.endpoint}")
     private String endpoint;
 
+    // Nodes of a distributed deployment; defaults to the single endpoint
+    @Value("${minio.endpoints:${minio.endpoint}}")
+    private List<String> endpoints;
+
     @Value("${minio.access-key}")
     private String accessKey;
 
     @Value("${minio.secret-key}")
     private String secretKey;
 
+    @Value("${minio.http.max-idle-connections:64}")
+    private int maxIdleConnections;
+
+    @Value("${minio.http.keep-alive:5m}")
+    private Duration keepAlive;
+
+    @Value("${minio.http.max-requests:256}")
+    private int maxRequests;
+
+    @Value("${minio.http.max-requests-per-host:64}")
+    private int maxRequestsPerHost;
+
+    @Value("${minio.http.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    // Server-side copies of large objects answer only when done
+    @Value("${minio.http.read-timeout:5m}")
+    private Duration readTimeout;
+
+    @Value("${minio.http.write-timeout:5m}")
+    private Duration writeTimeout;
+
+    @Value("${minio.health-check-interval:5s}")
+    private Duration healthCheckInterval;
+
+    @Bean(destroyMethod = "stop")
+    public MinioEndpointBalancer minioEndpointBalancer() {
+        return new MinioEndpointBalancer(endpoints, maxRequestsPerHost);
+    }
+
     @Bean
-    public MinioClient minioClient() {
+    public OkHttpClient minioHttpClient(MinioEndpointBalancer minioEndpointBalancer) {
+        // minio-java enqueues every call (the sync client wraps the async one), so these limits apply to all traffic
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        // Calls are counted against the URL they were created with, the first endpoint, before the
+        // balancer picks a node; the per-node limit (max-requests-per-host) is enforced by the balancer
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+
+        OkHttpClient base = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .writeTimeout(writeTimeout)
+                .build();
+        minioEndpointBalancer.startHealthChecks(base, healthCheckInterval);
+        return base.newBuilder()
+                .addInterceptor(minioEndpointBalancer)
+                .build();
+    }
+
+    @Bean
+    public MinioClient minioClient(OkHttpClient minioHttpClient) {
         return MinioClient.builder()
                 .endpoint(endpoint)
                 .credentials(accessKey, secretKey)
+                .httpClient(minioHttpClient)
                 .build();
     }
+
+    @Bean
+    public MinioAsyncClient minioAsyncClient(OkHttpClient minioHttpClient) {
+        return MinioAsyncClient.builder()
+                .endpoint(endpoint)
+                .credentials(accessKey, secretKey)
+                .httpClient(minioHttpClient)
+                .build();
+    }
+
+    /**
+     * Pool and dispatcher saturation, and per-node health, under
+     * {@code minio.http.*} and {@code minio.endpoint.*}.
+     */
+    @Bean
+    public MeterBinder minioHttpMetrics(OkHttpClient minioHttpClient, MinioEndpointBalancer minioEndpointBalancer) {
+        return registry -> {
+            ConnectionPool pool = minioHttpClient.connectionPool();
+            Dispatcher dispatcher = minioHttpClient.dispatcher();
+            Gauge.builder("minio.http.pool.connections", pool, ConnectionPool::connectionCount)
+                    .tag("state", "total").register(registry);
+            Gauge.builder("minio.http.pool.connections", pool, ConnectionPool::idleConnectionCount)
+                    .tag("state", "idle").register(registry);
+            Gauge.builder("minio.http.pool.max-idle", () -> maxIdleConnections).register(registry);
+            Gauge.builder("minio.http.dispatcher.running", dispatcher, Dispatcher::runningCallsCount)
+                    .register(registry);
+            Gauge.builder("minio.http.dispatcher.queued", dispatcher, Dispatcher::queuedCallsCount)
+                    .register(registry);
+            Gauge.builder("minio.http.dispatcher.max-requests", dispatcher, Dispatcher::getMaxRequests)
+                    .register(registry);
+            for (MinioEndpointBalancer.Endpoint node : minioEndpointBalancer.endpoints()) {
+                Gauge.builder("minio.endpoint.healthy", node, n -> n.isHealthy() ? 1 : 0)
+                        .tag("endpoint", node.url()).register(registry);
+                Gauge.builder("minio.endpoint.in-flight", node, MinioEndpointBalancer.Endpoint::inFlight)
+                        .tag("endpoint", node.url()).register(registry);
+            }
+        };
+    }
 }
@@ -0,0 +1,321 @@
+package com.example.ingestiongateway.config;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client-side load balancing across the nodes of a distributed MinIO
+ * deployment.
+ * <p>
+ * The MinIO clients are built against the first endpoint; this interceptor
+ * rewrites each request's scheme, host and port to the healthy node with the
+ * fewest requests in flight. The signed {@code Host} header set by the client
+ * is left untouched, so SigV4 signatures stay valid on every node. A node
+ * that refuses a connection is marked down and the request is retried on the
+ * next one (nothing has been sent at that point); a background check against
+ * {@code /minio/health/live} brings nodes back.
+ * <p>
+ * Each node takes at most {@code maxRequestsPerEndpoint} requests at a time.
+ * OkHttp's own per-host limit cannot do this: it counts calls against the
+ * URL they were created with, which is always the first endpoint. A request
+ * holds its node's slot until its response body is closed, since a GET is
+ * still streaming from the node after {@code proceed} returns.
+ * <p>
+ * A copy that streams a GET into a PUT holds the GET's slot while its PUT
+ * waits for one. If every slot on a node were held that way, no PUT could
+ * start and no GET would be closed, so such copies take a {@link CopyPermit}
+ * first: at most {@code maxRequestsPerEndpoint - 1} run at once, which leaves
+ * every node a slot that only finishing requests hold.
+ */
+@Slf4j
+public class MinioEndpointBalancer implements Interceptor {
+
+    private final List<Endpoint> endpoints;
+    private final Semaphore copies;
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService healthChecker;
+
+    public MinioEndpointBalancer(List<String> endpoints, int maxRequestsPerEndpoint) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one MinIO endpoint is required");
+        }
+        if (maxRequestsPerEndpoint < 2) {
+            throw new IllegalArgumentException("minio.http.max-requests-per-host must be at least 2: a streamed copy"
+                    + " holds a slot for its GET while its PUT takes another");
+        }
+        this.copies = new Semaphore(maxRequestsPerEndpoint - 1);
+        this.endpoints = endpoints.stream()
+                .map(url -> new Endpoint(HttpUrl.get(url), maxRequestsPerEndpoint))
+                .toList();
+    }
+
+    public List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Waits for a turn to stream a GET into a PUT; the permit is held until
+     * both requests are done.
+     */
+    public CopyPermit acquireCopy() throws InterruptedIOException {
+        try {
+            copies.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a copy permit");
+        }
+        return new CopyPermit(copies);
+    }
+
+    /**
+     * Probes every endpoint on a fixed interval. {@code httpClient} must not
+     * contain this interceptor.
+     */
+    public void startHealthChecks(OkHttpClient httpClient, Duration interval) {
+        if (endpoints.size() < 2) {
+            return;
+        }
+        OkHttpClient probeClient = httpClient.newBuilder()
+                .callTimeout(interval.compareTo(Duration.ofSeconds(2)) < 0 ? interval : Duration.ofSeconds(2))
+                .build();
+        healthChecker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("minio-health-"));
+        healthChecker.scheduleWithFixedDelay(() -> endpoints.forEach(endpoint -> probe(probeClient, endpoint)),
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        ConnectException lastFailure = null;
+        for (int attempt = 0; attempt < endpoints.size(); attempt++) {
+            Endpoint endpoint = choose();
+            HttpUrl url = request.url().newBuilder()
+                    .scheme(endpoint.url.scheme())
+                    .host(endpoint.url.host())
+                    .port(endpoint.url.port())
+                    .build();
+            Slot slot = endpoint.acquire(chain.readTimeoutMillis());
+            Response response;
+            try {
+                response = chain.proceed(request.newBuilder().url(url).build());
+            } catch (ConnectException e) {
+                slot.release();
+                markDown(endpoint, e);
+                lastFailure = e;
+                continue;
+            } catch (IOException | RuntimeException e) {
+                slot.release();
+                throw e;
+            }
+            ResponseBody body = response.body();
+            if (body == null) {
+                slot.release();
+                return response;
+            }
+            return response.newBuilder().body(new SlotReleasingBody(body, slot)).build();
+        }
+        throw lastFailure;
+    }
+
+    /**
+     * Healthy endpoint with the fewest requests in flight, rotating between
+     * ties; all endpoints are candidates when none is healthy.
+     */
+    Endpoint choose() {
+        List<Endpoint> candidates = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.healthy) {
+                candidates.add(endpoint);
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates = endpoints;
+        }
+        int offset = Math.floorMod(next.getAndIncrement(), candidates.size());
+        Endpoint best = null;
+        for (int i = 0; i < candidates.size(); i++) {
+            Endpoint candidate = candidates.get((offset + i) % candidates.size());
+            if (best == null || candidate.inFlight.get() < best.inFlight.get()) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private void probe(OkHttpClient probeClient, Endpoint endpoint) {
+        Request request = new Request.Builder()
+                .url(endpoint.url.newBuilder().encodedPath("/minio/health/live").build())
+                .build();
+        try (Response response = probeClient.newCall(request).execute()) {
+            if (response.isSuccessful()) {
+                if (!endpoint.healthy) {
+                    log.info("MinIO endpoint {} is back up", endpoint.url);
+                }
+                endpoint.healthy = true;
+            } else {
+                markDown(endpoint, new IOException("HTTP " + response.code()));
+            }
+        } catch (IOException e) {
+            markDown(endpoint, e);
+        }
+    }
+
+    private void markDown(Endpoint endpoint, IOException cause) {
+        if (endpoint.healthy && endpoints.size() > 1) {
+            log.warn("MinIO endpoint {} marked down: {}", endpoint.url, cause.getMessage());
+            endpoint.healthy = false;
+        }
+    }
+
+    public static final class Endpoint {
+
+        private final HttpUrl url;
+        private final Semaphore permits;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean healthy = true;
+
+        Endpoint(HttpUrl url, int maxRequests) {
+            this.url = url;
+            this.permits = new Semaphore(maxRequests);
+        }
+
+        /**
+         * Waits up to {@code timeoutMillis} (0: no limit) for a free slot on
+         * this node.
+         */
+        Slot acquire(long timeoutMillis) throws IOException {
+            try {
+                if (timeoutMillis <= 0) {
+                    permits.acquire();
+                } else if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new InterruptedIOException("Timed out waiting for a request slot on " + url);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for a request slot on " + url);
+            }
+            inFlight.incrementAndGet();
+            return new Slot(this);
+        }
+
+        public String url() {
+            return url.toString();
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public int inFlight() {
+            return inFlight.get();
+        }
+    }
+
+    /**
+     * A request's hold on its node; released once, by whichever of failure,
+     * body close or body exhaustion comes first.
+     */
+    static final class Slot {
+
+        private final Endpoint endpoint;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Slot(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                endpoint.inFlight.decrementAndGet();
+                endpoint.permits.release();
+            }
+        }
+    }
+
+    /**
+     * A streamed copy's turn; closing it more than once is harmless.
+     */
+    public static final class CopyPermit implements AutoCloseable {
+
+        private final Semaphore copies;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private CopyPermit(Semaphore copies) {
+            this.copies = copies;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                copies.release();
+            }
+        }
+    }
+
+    /**
+     * Response body that gives the node's slot back when it is closed.
+     */
+    private static final class SlotReleasingBody extends ResponseBody {
+
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        SlotReleasingBody(ResponseBody delegate, Slot slot) {
+            this.delegate = delegate;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        slot.release();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.ingestiongateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-tenant ({@code userName}) admission limits and worker weights.
+ * Configured in {@code application.yml}:
+ *
+ * <pre>
+ * app.tenants.defaults.requests-per-second: 20
+ * app.tenants.overrides.bulk-loader.weight: 1
+ * app.tenants.overrides.dashboard.weight: 4
+ * </pre>
+ *
+ * An override replaces the defaults for that tenant as a whole; fields it
+ * leaves out take the built-in values below.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.tenants")
+public class TenantProperties {
+
+    private Limits defaults = new Limits();
+
+    private Map<String, Limits> overrides = new HashMap<>();
+
+    @Data
+    public static class Limits {
+        // Token bucket on upload requests
+        private double requestsPerSecond = 20;
+        private int burst = 40;
+        // In-flight caps on the upload path
+        private int maxConcurrentRequests = 8;
+        private DataSize maxConcurrentBytes = DataSize.ofGigabytes(2);
+        // Share of worker capacity relative to other tenants
+        private int weight = 1;
+    }
+
+    public Limits limitsFor(String userName) {
+        return userName != null ? overrides.getOrDefault(userName, defaults) : defaults;
+    }
+
+    public int weightOf(String userName) {
+        return Math.max(1, limitsFor(userName).getWeight());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.ingestiongateway.config;
+
+import com.example.ingestiongateway.util.VirtualThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Streams the JFR {@code jdk.VirtualThreadPinned} event in-process and logs
+ * where virtual threads block while pinned to their carrier (typically a
+ * {@code synchronized} block in a client library doing I/O).
+ * <p>
+ * Each pin site is logged with its stack the first time it is seen and
+ * counted afterwards; {@link #pinSites()} returns the counts.
+ */
+@Slf4j
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+
+    private final long thresholdMs;
+    private final Map<String, LongAdder> pinSites = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(long thresholdMs) {
+        this.thresholdMs = thresholdMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!VirtualThreads.isSupported()) {
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Monitoring virtual thread pinning longer than {} ms", thresholdMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    public Map<String, Long> pinSites() {
+        return pinSites.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().sum()));
+    }
+
+    private void onPinned(RecordedEvent event) {
+        if (event.getStackTrace() == null || event.getStackTrace().getFrames().isEmpty()) {
+            return;
+        }
+        record(event.getDuration(), firstApplicationFrame(event), () -> formatStack(event));
+    }
+
+    /**
+     * Counts a pin at {@code site}, logging its stack the first time. Pins
+     * shorter than the threshold are dropped here as well, since JFR applies
+     * its threshold per recording and other recordings may lower it.
+     */
+    void record(Duration duration, String site, Supplier<String> stack) {
+        if (duration.toMillis() < thresholdMs) {
+            return;
+        }
+        LongAdder count = pinSites.computeIfAbsent(site, key -> {
+            log.warn("Virtual thread pinned for {} ms at {}:\n{}", duration.toMillis(), key, stack.get());
+            return new LongAdder();
+        });
+        count.increment();
+    }
+
+    /**
+     * The first frame outside the JDK, i.e. the library or app code that
+     * blocked while holding a monitor.
+     */
+    private static String firstApplicationFrame(RecordedEvent event) {
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return format(frame);
+            }
+        }
+        return format(event.getStackTrace().getFrames().get(0));
+    }
+
+    private static String formatStack(RecordedEvent event) {
+        return event.getStackTrace().getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .map(frame -> "    at " + format(frame))
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":"
+                + frame.getLineNumber();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.ingestiongateway.controller;
+
+import com.example.ingestiongateway.model.UploadSessionStatus;
+import com.example.ingestiongateway.service.ChunkedUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * Resumable upload protocol:
+ * <ol>
+ * <li>{@code POST /api/uploads} opens a session and returns its chunk size</li>
+ * <li>{@code PUT /api/uploads/{id}/chunks/{n}} sends chunk n (1-based) as the
+ * raw request body</li>
+ * <li>{@code GET /api/uploads/{id}} lists received chunks and the offset to
+ * resume from</li>
+ * <li>{@code POST /api/uploads/{id}/complete} returns the batch ID</li>
+ * </ol>
+ */
+@RestController
+@RequestMapping("/api/uploads")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ChunkedUploadController {
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    @PostMapping
+    public ResponseEntity<UploadSessionStatus> createSession(
+            @RequestParam("userName") String userName,
+            @RequestParam("filename") String filename,
+            @RequestParam("size") long size,
+            @RequestParam(value = "contentType", required = false) String contentType,
+            @RequestParam(value = "chunkSize", required = false) Long chunkSize) {
+
+        return ResponseEntity.ok(chunkedUploadService.createSession(userName, filename, contentType, size, chunkSize));
+    }
+
+    @PutMapping("/{sessionId}/chunks/{partNumber}")
+    public ResponseEntity<UploadSessionStatus> putChunk(
+            @PathVariable("sessionId") String sessionId,
+            @PathVariable("partNumber") int partNumber,
+            HttpServletRequest request) throws IOException {
+
+        return ResponseEntity.ok(chunkedUploadService.putChunk(sessionId, partNumber, request.getInputStream()));
+    }
+
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<UploadSessionStatus> getStatus(@PathVariable("sessionId") String sessionId) {
+        return ResponseEntity.ok(chunkedUploadService.getStatus(sessionId));
+    }
+
+    @PostMapping("/{sessionId}/complete")
+    public ResponseEntity<String> complete(@PathVariable("sessionId") String sessionId) {
+        return ResponseEntity.ok(chunkedUploadService.complete(sessionId));
+    }
+}
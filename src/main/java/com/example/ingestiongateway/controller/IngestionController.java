@@ -2,6 +2,7 @@ package com.example.ingestiongateway.controller;
 
 import com.example.ingestiongateway.service.IngestionService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -11,6 +12,7 @@ import java.util.List;
 @RestController
 @RequestMapping("/api/batches")
 @RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class IngestionController {
 
     private final IngestionService ingestionService;
@@ -18,9 +20,18 @@ public class IngestionController {
     @PostMapping("/upload")
     public ResponseEntity<String> uploadBatch(
             @RequestParam("files") List<MultipartFile> files,
-            @RequestParam("userName") String userName) throws IOException {
+            @RequestParam("userName") String userName,
+            @RequestAttribute(name = TenantAdmissionFilter.ADMITTED, required = false) Boolean admitted)
+            throws IOException {
 
-        String batchId = ingestionService.processUpload(files, userName);
+        String batchId = ingestionService.processUpload(files, userName, Boolean.TRUE.equals(admitted));
         return ResponseEntity.ok(batchId);
     }
+
+    @GetMapping("/{batchId}")
+    public ResponseEntity<Object> getBatch(@PathVariable("batchId") String batchId) {
+        return ingestionService.findBatch(batchId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 }
@@ -0,0 +1,38 @@
+package com.example.ingestiongateway.controller;
+
+import com.example.ingestiongateway.service.ReactiveIngestionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking upload endpoint, active when the app runs as a reactive web
+ * application ({@code --spring.profiles.active=reactive}).
+ * <p>
+ * {@code userName} is a query parameter here: the multipart body is streamed
+ * part by part, so form fields are not available before the files.
+ */
+@RestController
+@RequestMapping("/api/reactive/batches")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveIngestionController {
+
+    private final ReactiveIngestionService reactiveIngestionService;
+
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<ResponseEntity<String>> uploadBatch(
+            @RequestBody Flux<PartEvent> parts,
+            @RequestParam("userName") String userName,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength) {
+
+        return reactiveIngestionService.processUpload(parts, userName, contentLength != null ? contentLength : 0)
+                .map(ResponseEntity::ok);
+    }
+}
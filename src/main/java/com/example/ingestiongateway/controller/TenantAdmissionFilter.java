@@ -0,0 +1,84 @@
+package com.example.ingestiongateway.controller;
+
+import com.example.ingestiongateway.service.CapacityExceededException;
+import com.example.ingestiongateway.service.TenantAdmissionControl;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Admits batch uploads before the multipart body is read. The servlet
+ * container only parses (and stores) the parts once something asks for them,
+ * so a tenant over its limits is rejected with 429 here without the gateway
+ * receiving its files.
+ * <p>
+ * Only {@code userName} from the query string is used: reading a form field
+ * would parse the whole body first. Requests that send it as a form field
+ * pass through and are admitted by {@code IngestionService} after parsing.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class TenantAdmissionFilter extends OncePerRequestFilter {
+
+    /** Request attribute set once the request holds an admission permit. */
+    public static final String ADMITTED = "com.example.ingestiongateway.controller.TenantAdmissionFilter.ADMITTED";
+
+    static final String UPLOAD_PATH = "/api/batches/upload";
+
+    private final TenantAdmissionControl tenantAdmissionControl;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || !UPLOAD_PATH.equals(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String userName = queryParameter(request, "userName");
+        if (userName == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        TenantAdmissionControl.Permit permit;
+        try {
+            // Unknown length (chunked) counts as 0 against the byte cap
+            permit = tenantAdmissionControl.admit(userName, Math.max(0, request.getContentLengthLong()));
+        } catch (CapacityExceededException e) {
+            log.info("Rejected upload before reading its body: {}", e.getMessage());
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), e.getMessage());
+            return;
+        }
+        try (permit) {
+            request.setAttribute(ADMITTED, Boolean.TRUE);
+            chain.doFilter(request, response);
+        }
+    }
+
+    private static String queryParameter(HttpServletRequest request, String name) {
+        String query = request.getQueryString();
+        if (query == null) {
+            return null;
+        }
+        String value = UriComponentsBuilder.newInstance().query(query).build().getQueryParams().getFirst(name);
+        return value != null ? URLDecoder.decode(value, StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.ingestiongateway.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Slimmed copy of a DONE {@link BatchDocument}, kept in a zstd-compressed
+ * archive collection. The duplicated alpha/beta metadata lists and the
+ * transfer requests collapse into one list of delivered files.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = ArchivedBatchDocument.COLLECTION_NAME)
+public class ArchivedBatchDocument {
+
+    public static final String COLLECTION_NAME = "batches_archive";
+
+    @Id
+    private String id; // batchId
+
+    private Integer serverId;
+
+    private String userName;
+
+    // Same retention as the hot collection: 604800 seconds = 7 days
+    @Indexed(name = "ttl_index", expireAfterSeconds = 604800)
+    private Date createdAt;
+
+    private long ingestionTimestamp;
+
+    private Date archivedAt;
+
+    private long totalBytes;
+
+    private List<ArchivedFile> files;
+
+    public static ArchivedBatchDocument from(BatchDocument batch, Date archivedAt) {
+        List<FileTransferRequest> requests = batch.getTransferRequests() != null ? batch.getTransferRequests()
+                : List.of();
+        List<FileMetadata> metadata = batch.getKafkaMetadataAlpha() != null ? batch.getKafkaMetadataAlpha()
+                : List.of();
+
+        // Both lists are built in the same order at ingestion
+        List<ArchivedFile> files = new ArrayList<>(requests.size());
+        long totalBytes = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            FileTransferRequest request = requests.get(i);
+            FileMetadata meta = i < metadata.size() ? metadata.get(i) : null;
+            long size = meta != null ? meta.size() : 0;
+            files.add(new ArchivedFile(request.getTargetFilename(), size, contentType(meta),
+                    request.prodObjectName()));
+            totalBytes += size;
+        }
+
+        return ArchivedBatchDocument.builder()
+                .id(batch.getId())
+                .serverId(batch.getServerId())
+                .userName(batch.getUserInput() != null ? batch.getUserInput().userName() : null)
+                .createdAt(batch.getCreatedAt())
+                .ingestionTimestamp(batch.getIngestionTimestamp())
+                .archivedAt(archivedAt)
+                .totalBytes(totalBytes)
+                .files(files)
+                .build();
+    }
+
+    private static String contentType(FileMetadata meta) {
+        if (meta == null || meta.innerRecords() == null) {
+            return null;
+        }
+        return meta.innerRecords().stream()
+                .filter(record -> "type".equals(record.key()))
+                .map(InnerRecord::value)
+                .findFirst()
+                .orElse(null);
+    }
+}
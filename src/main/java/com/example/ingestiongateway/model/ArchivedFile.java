@@ -0,0 +1,9 @@
+package com.example.ingestiongateway.model;
+
+public record ArchivedFile(
+        String filename,
+        long size,
+        String contentType,
+        String prodPath // Delivered object in the prod bucket
+) {
+}
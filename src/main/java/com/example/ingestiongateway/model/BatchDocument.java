@@ -27,6 +27,8 @@ public class BatchDocument {
 
     private String status; // PENDING, READY, DONE
 
+    private String lane; // small, large (set when READY)
+
     // Field for automatic expiration (TTL)
     // 604800 seconds = 7 days
     @Indexed(name = "ttl_index", expireAfterSeconds = 604800)
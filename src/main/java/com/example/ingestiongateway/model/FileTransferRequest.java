@@ -13,7 +13,7 @@ public class FileTransferRequest {
 
     /**
      * Relative path in the temp bucket.
-     * Format: yy/mm/dd/hash
+     * Format: yy/mm/dd/hash, or yy/mm/dd/packs/id for a packed file
      */
     private String tempPath;
 
@@ -26,4 +26,47 @@ public class FileTransferRequest {
      * Original filename or target identifier for the final file.
      */
     private String targetFilename;
+
+    /**
+     * Content type recorded at ingestion, set on objects written to prod
+     * from a pack.
+     */
+    private String contentType;
+
+    /**
+     * Byte offset of the file within the pack object at {@link #tempPath},
+     * or null when the file is a standalone object.
+     */
+    private Long packOffset;
+
+    private Long packLength;
+
+    /**
+     * Codec the temp object was compressed with (see
+     * {@code CompressionCodec#id()}), or null when stored as received.
+     */
+    private String codec;
+
+    /**
+     * Deliver the compressed bytes to prod as they are, instead of
+     * decompressing them on the way.
+     */
+    private boolean keepCompressed;
+
+    public FileTransferRequest(String tempPath, String prodUuid, String targetFilename) {
+        this(tempPath, prodUuid, targetFilename, null, null, null, null, false);
+    }
+
+    public boolean packed() {
+        return packOffset != null;
+    }
+
+    /**
+     * Destination in the prod bucket: the temp path's {@code yy/mm/dd} folder,
+     * then {@code uuid/filename}.
+     */
+    public String prodObjectName() {
+        String[] parts = tempPath.split("/");
+        return parts[0] + "/" + parts[1] + "/" + parts[2] + "/" + prodUuid + "/" + targetFilename;
+    }
 }
@@ -0,0 +1,39 @@
+package com.example.ingestiongateway.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Where a packed small file's bytes live: a range of a pack object in the
+ * temp bucket. Keyed by content hash so identical files uploaded the same day
+ * reuse the stored range instead of being packed again.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = PackIndexEntry.COLLECTION_NAME)
+public class PackIndexEntry {
+
+    public static final String COLLECTION_NAME = "pack_index";
+
+    @Id
+    private String id; // SHA-256 of the file content
+
+    /**
+     * Pack object in the temp bucket. Format: yy/MM/dd/packs/id
+     */
+    private String packPath;
+
+    private long offset;
+
+    private long length;
+
+    private Date createdAt;
+}
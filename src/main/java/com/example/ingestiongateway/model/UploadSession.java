@@ -0,0 +1,88 @@
+package com.example.ingestiongateway.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A resumable upload of one file, backed by a MinIO multipart upload into a
+ * staging object of the tmp bucket. Chunk {@code n} (1-based) covers bytes
+ * {@code [(n - 1) * chunkSize, n * chunkSize)} of the file.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "upload_sessions")
+public class UploadSession {
+
+    public static final String OPEN = "OPEN";
+    public static final String COMPLETING = "COMPLETING"; // Claimed by a completion, see claimedAt
+    public static final String ASSEMBLED = "ASSEMBLED"; // Multipart upload completed, not yet ingested
+    public static final String PROMOTED = "PROMOTED"; // Copied to tmpPath, not yet ingested
+    public static final String COMPLETED = "COMPLETED";
+    public static final String ABORTED = "ABORTED";
+
+    @Id
+    private String id; // sessionId
+
+    private String userName;
+
+    private String filename;
+
+    private String contentType;
+
+    private long size;
+
+    private long chunkSize;
+
+    private int partCount;
+
+    private String uploadId; // MinIO multipart upload ID
+
+    private String stagingObject;
+
+    private String status;
+
+    // Keyed by part number so a chunk can be recorded with one atomic $set
+    @Builder.Default
+    private Map<String, UploadedPart> parts = new HashMap<>();
+
+    private String batchId; // Chosen when PROMOTED, so a resumed completion reuses its batch
+
+    // Content-addressed copy of the staging object, set once PROMOTED
+    private String tmpPath;
+
+    // Where a completion that failed or died picks up: OPEN (when null), ASSEMBLED or PROMOTED
+    private String resumeStatus;
+
+    // When a completion claimed the session; a COMPLETING claim older than the lease is taken over
+    private Date claimedAt;
+
+    private Date createdAt;
+
+    // Pushed forward by every chunk; expired sessions are aborted, then removed by TTL
+    private Date expiresAt;
+
+    /**
+     * The completion stage reached so far, whether or not the session is
+     * currently claimed.
+     */
+    public String stage() {
+        if (!COMPLETING.equals(status)) {
+            return status;
+        }
+        return resumeStatus != null ? resumeStatus : OPEN;
+    }
+
+    public long expectedPartSize(int partNumber) {
+        return partNumber < partCount ? chunkSize : size - (partCount - 1) * chunkSize;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.ingestiongateway.model;
+
+import java.util.List;
+
+public record UploadSessionStatus(
+        String sessionId,
+        String status,
+        long size,
+        long chunkSize,
+        int partCount,
+        List<Integer> receivedParts,
+        long receivedBytes,
+        long nextOffset, // Bytes received contiguously from the start; resume from here
+        String batchId) {
+
+    public static UploadSessionStatus of(UploadSession session) {
+        List<Integer> received = session.getParts().values().stream()
+                .map(UploadedPart::partNumber)
+                .sorted()
+                .toList();
+        long receivedBytes = session.getParts().values().stream().mapToLong(UploadedPart::size).sum();
+
+        long nextOffset = 0;
+        for (int part = 1; part <= session.getPartCount()
+                && session.getParts().containsKey(String.valueOf(part)); part++) {
+            nextOffset += session.expectedPartSize(part);
+        }
+        return new UploadSessionStatus(session.getId(), session.getStatus(), session.getSize(),
+                session.getChunkSize(), session.getPartCount(), received, receivedBytes, nextOffset,
+                UploadSession.COMPLETED.equals(session.getStatus()) ? session.getBatchId() : null);
+    }
+}
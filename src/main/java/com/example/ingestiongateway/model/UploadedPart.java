@@ -0,0 +1,7 @@
+package com.example.ingestiongateway.model;
+
+public record UploadedPart(
+        int partNumber,
+        String etag,
+        long size) {
+}
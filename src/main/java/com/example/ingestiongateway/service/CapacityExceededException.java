@@ -0,0 +1,17 @@
+package com.example.ingestiongateway.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the gateway is out of capacity to accept a request. Surfaces as
+ * HTTP 429 so clients back off and retry instead of the JVM running out of
+ * memory.
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class CapacityExceededException extends RuntimeException {
+
+    public CapacityExceededException(String message) {
+        super(message);
+    }
+}
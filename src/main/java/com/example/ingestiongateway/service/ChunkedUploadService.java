@@ -0,0 +1,368 @@
+package com.example.ingestiongateway.service;
+
+import com.example.ingestiongateway.model.UploadSession;
+import com.example.ingestiongateway.model.UploadSessionStatus;
+import com.example.ingestiongateway.model.UploadedPart;
+import io.minio.messages.Part;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resumable uploads: a client opens a session for one file, PUTs numbered
+ * chunks in any order (re-sending any that failed), asks which chunks
+ * arrived, and completes the session.
+ * <p>
+ * Every chunk goes straight into one part of a MinIO multipart upload, so
+ * nothing already received is lost when the connection drops, and the session
+ * lives in MongoDB so any gateway instance can serve the next chunk. On
+ * completion the parts are assembled into a staging object, which is hashed
+ * and copied to its content-addressed tmp path and ingested as a single-file
+ * batch.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkedUploadService {
+
+    // S3 limits: every part but the last must be at least 5 MiB, at most 10,000 parts
+    static final long MIN_CHUNK_SIZE = DataSize.ofMegabytes(5).toBytes();
+    static final int MAX_PARTS = 10_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final MinioService minioService;
+    private final IngestionService ingestionService;
+    private final TenantAdmissionControl tenantAdmissionControl;
+
+    @Value("${app.upload.default-chunk-size:8MB}")
+    private DataSize defaultChunkSize;
+
+    @Value("${app.upload.max-chunk-size:64MB}")
+    private DataSize maxChunkSize;
+
+    @Value("${app.upload.session-idle-timeout-minutes:60}")
+    private long idleTimeoutMinutes;
+
+    // A completion still COMPLETING after this long is assumed dead
+    @Value("${app.upload.completion-lease-minutes:30}")
+    private long completionLeaseMinutes;
+
+    @Value("${app.upload.spill-dir:${java.io.tmpdir}}")
+    private Path spillDir;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(spillDir);
+        try {
+            // Expired sessions are aborted by the sweeper first; the TTL only removes what is left a day later
+            mongoTemplate.indexOps(UploadSession.class)
+                    .ensureIndex(new Index().on("expiresAt", Sort.Direction.ASC)
+                            .expire(Duration.ofDays(1))
+                            .named("ttl_index"));
+        } catch (Exception e) {
+            log.error("Failed to ensure TTL index for upload sessions", e);
+        }
+    }
+
+    public UploadSessionStatus createSession(String userName, String filename, String contentType, long size,
+            Long requestedChunkSize) {
+        if (size <= 0) {
+            throw new InvalidUploadException("size must be positive");
+        }
+        long chunkSize = requestedChunkSize != null ? requestedChunkSize : defaultChunkSize.toBytes();
+        if (chunkSize > maxChunkSize.toBytes() || (chunkSize < MIN_CHUNK_SIZE && chunkSize < size)) {
+            throw new InvalidUploadException("chunkSize must be between " + MIN_CHUNK_SIZE + " and "
+                    + maxChunkSize.toBytes() + " bytes");
+        }
+        long partCount = (size + chunkSize - 1) / chunkSize;
+        if (partCount > MAX_PARTS) {
+            throw new InvalidUploadException("File needs " + partCount + " chunks; use a larger chunkSize");
+        }
+
+        String sessionId = UUID.randomUUID().toString();
+        String stagingObject = MinioService.stagingObjectName(sessionId);
+        Date now = new Date();
+        UploadSession session = UploadSession.builder()
+                .id(sessionId)
+                .userName(userName)
+                .filename(filename)
+                .contentType(contentType)
+                .size(size)
+                .chunkSize(chunkSize)
+                .partCount((int) partCount)
+                .uploadId(minioService.createStagingUpload(stagingObject, contentType))
+                .stagingObject(stagingObject)
+                .status(UploadSession.OPEN)
+                .createdAt(now)
+                .expiresAt(expiryFrom(now))
+                .build();
+        mongoTemplate.insert(session);
+
+        log.info("Opened upload session {} for {} ({} bytes in {} chunks)", sessionId, filename, size, partCount);
+        return UploadSessionStatus.of(session);
+    }
+
+    /**
+     * Stores one chunk as a multipart part. Re-sending a chunk replaces it.
+     */
+    public UploadSessionStatus putChunk(String sessionId, int partNumber, InputStream body) throws IOException {
+        UploadSession session = findOpen(sessionId);
+        if (partNumber < 1 || partNumber > session.getPartCount()) {
+            throw new InvalidUploadException("Chunk number must be between 1 and " + session.getPartCount());
+        }
+        long expectedSize = session.expectedPartSize(partNumber);
+
+        // Spill first: the part request needs its length and payload hash before it is sent
+        Path spill = Files.createTempFile(spillDir, "chunk-", ".part");
+        try (TenantAdmissionControl.Permit permit = tenantAdmissionControl.admit(session.getUserName(),
+                expectedSize)) {
+            long received = copyAtMost(body, spill, expectedSize + 1);
+            if (received != expectedSize) {
+                throw new InvalidUploadException("Chunk " + partNumber + " must be " + expectedSize
+                        + " bytes, got " + received);
+            }
+            String etag = minioService.uploadStagingPart(session.getStagingObject(), session.getUploadId(),
+                    partNumber, spill, received);
+
+            UploadSession updated = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(sessionId).and("status").is(UploadSession.OPEN)),
+                    new Update()
+                            .set("parts." + partNumber, new UploadedPart(partNumber, etag, received))
+                            .set("expiresAt", expiryFrom(new Date())),
+                    FindAndModifyOptions.options().returnNew(true),
+                    UploadSession.class);
+            if (updated == null) {
+                throw new InvalidUploadException("Upload session " + sessionId + " is no longer open");
+            }
+            return UploadSessionStatus.of(updated);
+        } finally {
+            Files.deleteIfExists(spill);
+        }
+    }
+
+    public UploadSessionStatus getStatus(String sessionId) {
+        UploadSession session = mongoTemplate.findById(sessionId, UploadSession.class);
+        if (session == null) {
+            throw new UploadSessionNotFoundException(sessionId);
+        }
+        return UploadSessionStatus.of(session);
+    }
+
+    /**
+     * Assembles the chunks and ingests the file as a single-file batch.
+     * Completing an already completed session returns its batch again. A
+     * completion that failed part-way, or whose instance died holding the
+     * claim for longer than the completion lease, resumes from the last stage
+     * it reached (ASSEMBLED, then PROMOTED). The batch ID is recorded with
+     * PROMOTED, before anything is ingested, so a resumed completion reuses
+     * the batch an earlier attempt created instead of ingesting the file twice.
+     *
+     * @return the batch ID
+     */
+    public String complete(String sessionId) {
+        // Claim the session so concurrent completions cannot both assemble it; returns the pre-claim state
+        Date now = new Date();
+        UploadSession session = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(sessionId).orOperator(
+                        Criteria.where("status").in(UploadSession.OPEN, UploadSession.ASSEMBLED,
+                                UploadSession.PROMOTED),
+                        staleClaim(now))),
+                new Update().set("status", UploadSession.COMPLETING).set("claimedAt", now),
+                UploadSession.class);
+        if (session == null) {
+            UploadSession current = mongoTemplate.findById(sessionId, UploadSession.class);
+            if (current == null) {
+                throw new UploadSessionNotFoundException(sessionId);
+            }
+            if (UploadSession.COMPLETED.equals(current.getStatus())) {
+                return current.getBatchId();
+            }
+            throw new InvalidUploadException("Upload session " + sessionId + " is " + current.getStatus());
+        }
+        if (UploadSession.COMPLETING.equals(session.getStatus())) {
+            log.warn("Taking over upload session {} from a completion claimed at {}", sessionId,
+                    session.getClaimedAt());
+        }
+
+        // Stage to fall back to if this attempt fails
+        String stage = session.stage();
+        try {
+            if (UploadSession.OPEN.equals(stage)) {
+                minioService.completeStagingUpload(session.getStagingObject(), session.getUploadId(),
+                        orderedParts(session));
+                stage = UploadSession.ASSEMBLED;
+                checkpoint(sessionId, new Update().set("resumeStatus", stage));
+            }
+
+            String tmpPath = session.getTmpPath();
+            String batchId = session.getBatchId();
+            if (UploadSession.ASSEMBLED.equals(stage)) {
+                // Keeps the staging object, so a failed ingest can still be retried
+                tmpPath = minioService.promoteStagingObject(session.getStagingObject());
+                stage = UploadSession.PROMOTED;
+                batchId = UUID.randomUUID().toString();
+                checkpoint(sessionId, new Update().set("resumeStatus", stage).set("tmpPath", tmpPath)
+                        .set("batchId", batchId));
+            } else if (batchId == null) {
+                // Promoted before batch IDs were recorded with the stage
+                batchId = UUID.randomUUID().toString();
+                checkpoint(sessionId, new Update().set("batchId", batchId));
+            }
+
+            ingestionService.ingestStoredFiles(batchId, List.of(new IngestionService.StoredFile(
+                    session.getFilename(), session.getContentType(), session.getSize(), tmpPath)),
+                    session.getUserName());
+
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(sessionId)),
+                    new Update().set("status", UploadSession.COMPLETED).unset("claimedAt"),
+                    UploadSession.class);
+            log.info("Completed upload session {} as Batch ID: {}", sessionId, batchId);
+            removeStagingQuietly(session);
+            return batchId;
+        } catch (RuntimeException e) {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(sessionId)),
+                    new Update().set("status", stage).unset("claimedAt"), UploadSession.class);
+            throw e;
+        }
+    }
+
+    /**
+     * Aborts sessions whose idle timeout passed, and completions whose claim
+     * outlived the completion lease (the instance died mid-way), releasing
+     * the parts and staging object MinIO holds for them.
+     *
+     * @return the number of sessions aborted
+     */
+    public int abortExpired(int limit) {
+        Date now = new Date();
+        Query query = Query.query(new Criteria().orOperator(
+                Criteria.where("status").in(UploadSession.OPEN, UploadSession.ASSEMBLED, UploadSession.PROMOTED)
+                        .and("expiresAt").lt(now),
+                staleClaim(now)))
+                .limit(limit);
+        int aborted = 0;
+        for (UploadSession session : mongoTemplate.find(query, UploadSession.class)) {
+            // Claim first so a chunk or completion arriving meanwhile is rejected rather than orphaned
+            Criteria unchanged = Criteria.where("_id").is(session.getId()).and("status").is(session.getStatus());
+            if (UploadSession.COMPLETING.equals(session.getStatus())) {
+                unchanged.and("claimedAt").is(session.getClaimedAt());
+            }
+            UploadSession claimed = mongoTemplate.findAndModify(Query.query(unchanged),
+                    Update.update("status", UploadSession.ABORTED),
+                    UploadSession.class);
+            if (claimed == null) {
+                continue;
+            }
+            try {
+                if (UploadSession.OPEN.equals(claimed.stage())) {
+                    abortUploadQuietly(claimed);
+                }
+                // Also covers a completion that died between assembling and recording it
+                minioService.removeStagingObject(claimed.getStagingObject());
+                aborted++;
+            } catch (Exception e) {
+                log.warn("Failed to clean up expired upload session {}", claimed.getId(), e);
+            }
+        }
+        return aborted;
+    }
+
+    private void abortUploadQuietly(UploadSession session) {
+        try {
+            minioService.abortStagingUpload(session.getStagingObject(), session.getUploadId());
+        } catch (Exception e) {
+            // Already completed by a completion that died before recording it
+            log.warn("Failed to abort multipart upload of session {}", session.getId(), e);
+        }
+    }
+
+    private void removeStagingQuietly(UploadSession session) {
+        try {
+            minioService.removeStagingObject(session.getStagingObject());
+        } catch (Exception e) {
+            log.warn("Failed to remove staging object of completed upload session {}", session.getId(), e);
+        }
+    }
+
+    private UploadSession findOpen(String sessionId) {
+        UploadSession session = mongoTemplate.findById(sessionId, UploadSession.class);
+        if (session == null) {
+            throw new UploadSessionNotFoundException(sessionId);
+        }
+        if (!UploadSession.OPEN.equals(session.getStatus())) {
+            throw new InvalidUploadException("Upload session " + sessionId + " is " + session.getStatus());
+        }
+        return session;
+    }
+
+    private static List<Part> orderedParts(UploadSession session) {
+        List<Part> parts = new ArrayList<>(session.getPartCount());
+        for (int partNumber = 1; partNumber <= session.getPartCount(); partNumber++) {
+            UploadedPart part = session.getParts().get(String.valueOf(partNumber));
+            if (part == null) {
+                throw new InvalidUploadException("Chunk " + partNumber + " of " + session.getPartCount()
+                        + " has not been received");
+            }
+            parts.add(new Part(partNumber, part.etag()));
+        }
+        return parts;
+    }
+
+    private void checkpoint(String sessionId, Update update) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(sessionId)), update, UploadSession.class);
+    }
+
+    /**
+     * COMPLETING sessions whose claim is older than the completion lease, or
+     * that were claimed before claims were timestamped.
+     */
+    private Criteria staleClaim(Date now) {
+        Date cutoff = new Date(now.getTime() - TimeUnit.MINUTES.toMillis(completionLeaseMinutes));
+        return Criteria.where("status").is(UploadSession.COMPLETING).orOperator(
+                Criteria.where("claimedAt").lt(cutoff),
+                Criteria.where("claimedAt").is(null));
+    }
+
+    private Date expiryFrom(Date now) {
+        return new Date(now.getTime() + TimeUnit.MINUTES.toMillis(idleTimeoutMinutes));
+    }
+
+    /**
+     * Copies up to {@code limit} bytes, so an oversized chunk is detected
+     * without spilling all of it.
+     */
+    private static long copyAtMost(InputStream in, Path target, long limit) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long copied = 0;
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while (copied < limit && (read = in.read(buffer, 0, (int) Math.min(buffer.length, limit - copied))) != -1) {
+                out.write(buffer, 0, read);
+                copied += read;
+            }
+        }
+        return copied;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.ingestiongateway.service;
+
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-stage latency and failure injection, active only under the
+ * {@code demo} profile. Configured in {@code application-demo.yml}:
+ *
+ * <pre>
+ * app.demo.stages.worker-ready.delay: 5s
+ * app.demo.stages.worker-copy.failure-rate: 0.1
+ * </pre>
+ */
+@Component
+@Profile("demo")
+@ConfigurationProperties(prefix = "app.demo")
+@Slf4j
+public class DemoFaultInjector implements FaultInjector {
+
+    @Getter
+    @Setter
+    private Map<String, StageFault> stages = new HashMap<>();
+
+    @Data
+    public static class StageFault {
+        private Duration delay = Duration.ZERO;
+        private double failureRate;
+    }
+
+    @Override
+    public void inject(String stage) {
+        StageFault fault = stages.get(stage);
+        if (fault == null) {
+            return;
+        }
+
+        if (!fault.getDelay().isZero()) {
+            try {
+                log.info("Sleeping for {} ms at stage {} (demo)...", fault.getDelay().toMillis(), stage);
+                Thread.sleep(fault.getDelay().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (fault.getFailureRate() > 0 && ThreadLocalRandom.current().nextDouble() < fault.getFailureRate()) {
+            log.warn("Injecting failure at stage {} (demo)", stage);
+            throw new InjectedFaultException(stage);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.ingestiongateway.service;
+
+/**
+ * Hook for artificial latency and failures at named pipeline stages.
+ * <p>
+ * The default implementation does nothing. Under the {@code demo} profile
+ * {@link DemoFaultInjector} adds the configured delays and failure rates, so
+ * transient states (PENDING/READY) stay visible long enough to watch.
+ */
+public interface FaultInjector {
+
+    /** After the PENDING document is saved, before files are uploaded. */
+    String INGEST_PENDING = "ingest-pending";
+
+    /** Before each file is uploaded to the tmp bucket. */
+    String INGEST_UPLOAD = "ingest-upload";
+
+    /** When the worker picks up a READY batch event. */
+    String WORKER_READY = "worker-ready";
+
+    /** Before each tmp -> prod copy. */
+    String WORKER_COPY = "worker-copy";
+
+    /**
+     * Applies the configured delay and/or failure for the stage.
+     *
+     * @throws InjectedFaultException when a failure is injected
+     */
+    void inject(String stage);
+}
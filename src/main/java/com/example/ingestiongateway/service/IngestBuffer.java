@@ -0,0 +1,76 @@
+package com.example.ingestiongateway.service;
+
+import com.example.ingestiongateway.util.ByteBufferInputStream;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * One uploaded file held by the {@link IngestBufferManager} for the duration
+ * of its upload to MinIO. The content is read once and hashed on the way in,
+ * so it can be streamed to MinIO any number of times without touching the
+ * original multipart part again.
+ * <p>
+ * Must be closed to return pooled memory or delete the spill file.
+ */
+@Getter
+public class IngestBuffer implements AutoCloseable {
+
+    private final String filename;
+    private final String contentType;
+    private final String sha256;
+    private final long size;
+    private final boolean inMemory;
+
+    @Getter(AccessLevel.NONE)
+    private final ByteBuffer content;
+
+    @Getter(AccessLevel.NONE)
+    private final Path spillFile;
+
+    @Getter(AccessLevel.NONE)
+    private final Runnable release;
+
+    @Getter(AccessLevel.NONE)
+    private boolean closed;
+
+    /**
+     * @param content   in-memory or mapped content, or {@code null} to stream
+     *                  from {@code spillFile}
+     * @param spillFile backing file when spilled, otherwise {@code null}
+     */
+    IngestBuffer(String filename, String contentType, String sha256, long size, ByteBuffer content, Path spillFile,
+            Runnable release) {
+        this.filename = filename;
+        this.contentType = contentType;
+        this.sha256 = sha256;
+        this.size = size;
+        this.inMemory = spillFile == null;
+        this.content = content != null ? content.asReadOnlyBuffer() : null;
+        this.spillFile = spillFile;
+        this.release = release;
+    }
+
+    /**
+     * Opens a fresh stream over the buffered content.
+     */
+    public InputStream openStream() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Buffer for " + filename + " has been released");
+        }
+        return content != null ? new ByteBufferInputStream(content) : Files.newInputStream(spillFile);
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            release.run();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.ingestiongateway.service;
+
+import com.example.ingestiongateway.util.ContentHasher;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiered in-flight buffering for uploaded files.
+ * <p>
+ * Files up to {@code in-memory-threshold} are copied into pooled off-heap
+ * buffers and never touch the disk again. Larger files are spilled once to a
+ * temp file and memory-mapped for hashing and upload. Pooled memory is capped
+ * by {@code memory-budget}; when it is exhausted requests are rejected with
+ * HTTP 429 instead of growing the heap or direct memory without bound.
+ */
+@Service
+@Slf4j
+public class IngestBufferManager {
+
+    @Value("${app.ingest.buffer.in-memory-threshold:256KB}")
+    private DataSize inMemoryThreshold;
+
+    @Value("${app.ingest.buffer.memory-budget:256MB}")
+    private DataSize memoryBudget;
+
+    @Value("${app.ingest.buffer.acquire-timeout-ms:200}")
+    private long acquireTimeoutMs;
+
+    @Value("${app.ingest.buffer.spill-dir:${java.io.tmpdir}}")
+    private Path spillDir;
+
+    private final Queue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+    private Semaphore bufferPermits;
+    private int bufferSize;
+
+    @PostConstruct
+    public void init() throws IOException {
+        bufferSize = (int) inMemoryThreshold.toBytes();
+        int maxBuffers = (int) Math.max(1, memoryBudget.toBytes() / bufferSize);
+        bufferPermits = new Semaphore(maxBuffers);
+        Files.createDirectories(spillDir);
+        log.info("Ingest buffers: {} x {} bytes in memory, spilling larger files to {}", maxBuffers, bufferSize,
+                spillDir);
+    }
+
+    /**
+     * Reads the file once, hashing it on the way, into memory or a spill file.
+     *
+     * @throws CapacityExceededException if no in-memory buffer frees up within
+     *                                   the acquire timeout
+     */
+    public IngestBuffer buffer(MultipartFile file) throws IOException {
+        if (file.getSize() <= bufferSize) {
+            return bufferInMemory(file);
+        }
+        return spillToDisk(file);
+    }
+
+    private IngestBuffer bufferInMemory(MultipartFile file) throws IOException {
+        acquirePermit();
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+        ByteBuffer leased = buffer;
+        leased.clear();
+        try (ContentHasher hasher = ContentHasher.acquire(); InputStream in = file.getInputStream()) {
+            hasher.update(in, leased);
+            leased.flip();
+            return new IngestBuffer(file.getOriginalFilename(), file.getContentType(), hasher.hexDigest(),
+                    leased.remaining(), leased, null, () -> release(leased));
+        } catch (IOException | RuntimeException e) {
+            release(leased);
+            throw e;
+        }
+    }
+
+    private IngestBuffer spillToDisk(MultipartFile file) throws IOException {
+        Path spill = Files.createTempFile(spillDir, "ingest-", ".part");
+        try {
+            String hash;
+            long size;
+            try (ContentHasher hasher = ContentHasher.acquire(); InputStream in = file.getInputStream();
+                    OutputStream out = Files.newOutputStream(spill)) {
+                size = hasher.update(in, out);
+                hash = hasher.hexDigest();
+            }
+            ByteBuffer mapped = null;
+            try (FileChannel channel = FileChannel.open(spill, StandardOpenOption.READ)) {
+                if (size <= Integer.MAX_VALUE) {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                }
+            }
+            return new IngestBuffer(file.getOriginalFilename(), file.getContentType(), hash, size, mapped, spill,
+                    () -> deleteSpill(spill));
+        } catch (IOException | RuntimeException e) {
+            deleteSpill(spill);
+            throw e;
+        }
+    }
+
+    private void acquirePermit() {
+        try {
+            if (!bufferPermits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new CapacityExceededException("Ingest memory budget exhausted, retry later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CapacityExceededException("Interrupted while waiting for an ingest buffer");
+        }
+    }
+
+    private void release(ByteBuffer buffer) {
+        freeBuffers.offer(buffer);
+        bufferPermits.release();
+    }
+
+    private void deleteSpill(Path spill) {
+        try {
+            Files.deleteIfExists(spill);
+        } catch (IOException e) {
+            log.warn("Failed to delete spill file {}", spill, e);
+        }
+    }
+
+    public int availableBuffers() {
+        return bufferPermits.availablePermits();
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.ingestiongateway.service;
 
+import com.example.ingestiongateway.config.CompressionProperties;
+import com.example.ingestiongateway.config.LaneProperties;
+import com.example.ingestiongateway.model.ArchivedBatchDocument;
 import com.example.ingestiongateway.model.BatchDocument;
 import com.example.ingestiongateway.model.FileMetadata;
 import com.example.ingestiongateway.model.InnerRecord;
@@ -11,8 +14,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import org.springframework.kafka.core.KafkaTemplate;
+import com.example.ingestiongateway.util.CompressionCodec;
+import com.example.ingestiongateway.util.ParallelTasks;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -21,18 +29,137 @@ public class IngestionService {
 
     private final MongoTemplate mongoTemplate;
     private final MinioService minioService;
+    private final IngestBufferManager ingestBufferManager;
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
     private final ServerIdentityService serverIdentityService;
+    private final ExecutorService transferExecutor;
+    private final FaultInjector faultInjector;
+    private final TenantAdmissionControl tenantAdmissionControl;
+    private final LaneProperties laneProperties;
+    private final SmallFilePacker smallFilePacker;
+    private final CompressionProperties compressionProperties;
 
     @org.springframework.beans.factory.annotation.Value("${app.worker.topics.ingestion:batch.ingestion.events}")
     private String ingestionTopic;
 
-    public String processUpload(List<MultipartFile> files, String userName) {
-        String batchId = UUID.randomUUID().toString();
-        long timestamp = Instant.now().toEpochMilli();
+    @org.springframework.beans.factory.annotation.Value("${app.ingest.upload-parallelism:4}")
+    private int uploadParallelism;
+
+    /**
+     * A file already stored in the temp bucket, ready to become part of a
+     * batch.
+     *
+     * @param packOffset offset within the pack object at {@code tmpPath}, or
+     *                   null for a standalone object
+     * @param codec      codec the object was compressed with, or null
+     */
+    public record StoredFile(
+            String filename,
+            String contentType,
+            long size,
+            String tmpPath,
+            Long packOffset,
+            CompressionCodec codec) {
 
+        public StoredFile(String filename, String contentType, long size, String tmpPath) {
+            this(filename, contentType, size, tmpPath, null, null);
+        }
+    }
+
+    /**
+     * @param admitted whether the request already holds an admission permit
+     *                 (see {@code TenantAdmissionFilter}); otherwise it is
+     *                 admitted here, after the body has been parsed
+     */
+    public String processUpload(List<MultipartFile> files, String userName, boolean admitted) {
+        if (admitted) {
+            return ingest(files, userName);
+        }
+        long totalBytes = files.stream().mapToLong(MultipartFile::getSize).sum();
+        // Rejected with 429 before anything is written if the tenant is over its limits
+        try (TenantAdmissionControl.Permit permit = tenantAdmissionControl.admit(userName, totalBytes)) {
+            return ingest(files, userName);
+        }
+    }
+
+    private String ingest(List<MultipartFile> files, String userName) {
         // 1. Create and Save PENDING Document
+        BatchDocument document = savePending(UUID.randomUUID().toString(), userName);
+        String batchId = document.getId();
+
+        // Demo profile only: delay to show PENDING state
+        faultInjector.inject(FaultInjector.INGEST_PENDING);
+
+        try {
+            // 2. Buffer once (memory or spill file), then Upload to Tmp Bucket, a few files at a time
+            List<Supplier<StoredFile>> uploads = ParallelTasks.map(transferExecutor, files, uploadParallelism,
+                    file -> {
+                        faultInjector.inject(FaultInjector.INGEST_UPLOAD);
+                        try (IngestBuffer buffer = ingestBufferManager.buffer(file)) {
+                            if (smallFilePacker.accepts(file.getSize())) {
+                                // Joins the open pack without waiting, so the request's other files can join too
+                                CompletableFuture<SmallFilePacker.PackedFile> packed = smallFilePacker.add(buffer);
+                                return () -> {
+                                    SmallFilePacker.PackedFile location = packed.join();
+                                    return new StoredFile(file.getOriginalFilename(), file.getContentType(),
+                                            file.getSize(), location.packPath(), location.offset(), null);
+                                };
+                            }
+                            CompressionCodec codec = compressionProperties.codecFor(file.getContentType(),
+                                    file.getSize());
+                            StoredFile uploaded = new StoredFile(file.getOriginalFilename(), file.getContentType(),
+                                    file.getSize(), minioService.uploadToTmp(buffer, codec), null, codec);
+                            return () -> uploaded;
+                        }
+                    });
+            // Packed files are only stored once their pack has been written
+            List<StoredFile> stored = uploads.stream().map(Supplier::get).toList();
+
+            // 3. Update to READY and Fire Event to Kafka
+            markReady(document, stored);
+
+        } catch (CapacityExceededException e) {
+            log.warn("Rejected Batch ID: {} - {}", batchId, e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            log.error("Upload/Ingestion failed for Batch ID: {}", batchId, e);
+            // Optional: Update status to FAILED here if desired, but throw for now
+            throw new RuntimeException("Ingestion failed", e);
+        }
+
+        return batchId;
+    }
+
+    /**
+     * Creates a batch from files that are already in the temp bucket (e.g. a
+     * finalized resumable upload), skipping the upload step.
+     * <p>
+     * The caller picks {@code batchId} and records it first, so a retry after
+     * a crash finds the batch it already created. A batch that got past
+     * PENDING is left to the worker and recovery, and only a PENDING one is
+     * written again.
+     */
+    public String ingestStoredFiles(String batchId, List<StoredFile> files, String userName) {
+        Optional<Object> existing = findBatch(batchId);
+        if (existing.isPresent()
+                && !(existing.get() instanceof BatchDocument batch && "PENDING".equals(batch.getStatus()))) {
+            log.info("Batch ID: {} already exists. Skipping.", batchId);
+            return batchId;
+        }
+        BatchDocument document = savePending(batchId, userName);
+        try {
+            markReady(document, files);
+        } catch (Exception e) {
+            log.error("Ingestion failed for Batch ID: {}", document.getId(), e);
+            throw new RuntimeException("Ingestion failed", e);
+        }
+        return document.getId();
+    }
+
+    private BatchDocument savePending(String batchId, String userName) {
+        long timestamp = Instant.now().toEpochMilli();
+
         UserInputRecord userInput = new UserInputRecord(
                 userName,
                 "upload",
@@ -49,74 +176,86 @@ public class IngestionService {
 
         mongoTemplate.save(document);
         log.info("Saved PENDING batch: {}", batchId);
+        return document;
+    }
 
-        // DELAY FOR DEMO PURPOSES
-        try {
-            log.info("Sleeping for 5 seconds to show PENDING state...");
-            Thread.sleep(5000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+    private void markReady(BatchDocument document, List<StoredFile> files) {
+        String batchId = document.getId();
 
-        // 2. Prepare Metadata Lists & Transfer Requests
+        // Prepare Metadata Lists & Transfer Requests
         List<FileMetadata> metadataAlpha = new ArrayList<>();
         List<FileMetadata> metadataBeta = new ArrayList<>();
         List<com.example.ingestiongateway.model.FileTransferRequest> transferRequests = new ArrayList<>();
 
-        try {
-            for (MultipartFile file : files) {
-                // Upload to Tmp Bucket
-                String tmpPath = minioService.uploadToTmp(file);
-
-                // Generate Prod UUID and Request
-                String prodUuid = UUID.randomUUID().toString();
-                String originalFilename = file.getOriginalFilename();
-
-                com.example.ingestiongateway.model.FileTransferRequest request = com.example.ingestiongateway.model.FileTransferRequest
-                        .builder()
-                        .tempPath(tmpPath)
-                        .prodUuid(prodUuid)
-                        .targetFilename(originalFilename)
-                        .build();
-                transferRequests.add(request);
-
-                // Create Metadata
-                List<InnerRecord> innerRecords = List.of(
-                        new InnerRecord("type", file.getContentType()),
-                        new InnerRecord("status", "received"));
-                FileMetadata meta = new FileMetadata(
-                        originalFilename,
-                        batchId,
-                        file.getSize(),
-                        innerRecords);
-
-                metadataAlpha.add(meta);
-                metadataBeta.add(meta);
-            }
+        for (StoredFile file : files) {
+            // Generate Prod UUID and Request
+            String prodUuid = UUID.randomUUID().toString();
+
+            com.example.ingestiongateway.model.FileTransferRequest request = com.example.ingestiongateway.model.FileTransferRequest
+                    .builder()
+                    .tempPath(file.tmpPath())
+                    .prodUuid(prodUuid)
+                    .targetFilename(file.filename())
+                    .contentType(file.contentType())
+                    .packOffset(file.packOffset())
+                    .packLength(file.packOffset() != null ? file.size() : null)
+                    .codec(file.codec() != null ? file.codec().id() : null)
+                    .keepCompressed(file.codec() != null && !compressionProperties.isDecompressOnDelivery())
+                    .build();
+            transferRequests.add(request);
 
-            // 3. Update and Save READY Document
-            document.setStatus("READY");
-            document.setKafkaMetadataAlpha(metadataAlpha);
-            document.setKafkaMetadataBeta(metadataBeta);
-            document.setTransferRequests(transferRequests);
-
-            mongoTemplate.save(document);
-            log.info("Saved READY batch: {}", batchId);
-
-            // 4. Fire Event to Kafka
-            try {
-                kafkaTemplate.send(ingestionTopic, document);
-                log.info("Published ingestion event for Batch ID: {}", batchId);
-            } catch (Exception e) {
-                log.error("Failed to publish ingestion event for Batch ID: {} - Worker will recover.", batchId, e);
+            // Create Metadata
+            List<InnerRecord> innerRecords = new ArrayList<>(List.of(
+                    new InnerRecord("type", file.contentType()),
+                    new InnerRecord("status", "received")));
+            if (request.getCodec() != null) {
+                // How the temp object is stored, whatever is delivered
+                innerRecords.add(new InnerRecord("tmp-codec", request.getCodec()));
+            }
+            if (request.isKeepCompressed()) {
+                // The prod object is compressed; consumers decompress with this codec
+                innerRecords.add(new InnerRecord("codec", request.getCodec()));
             }
+            FileMetadata meta = new FileMetadata(
+                    file.filename(),
+                    batchId,
+                    file.size(),
+                    innerRecords);
 
+            metadataAlpha.add(meta);
+            metadataBeta.add(meta);
+        }
+
+        // Update and Save READY Document
+        document.setStatus("READY");
+        document.setLane(laneProperties.laneOf(files.stream().mapToLong(StoredFile::size).sum(), files.size()));
+        document.setKafkaMetadataAlpha(metadataAlpha);
+        document.setKafkaMetadataBeta(metadataBeta);
+        document.setTransferRequests(transferRequests);
+
+        mongoTemplate.save(document);
+        log.info("Saved READY batch: {}", batchId);
+
+        // Fire Event to Kafka
+        try {
+            kafkaTemplate.send(LaneProperties.topic(ingestionTopic, document.getLane()), document);
+            log.info("Published ingestion event for Batch ID: {} to the {} lane", batchId, document.getLane());
         } catch (Exception e) {
-            log.error("Upload/Ingestion failed for Batch ID: {}", batchId, e);
-            // Optional: Update status to FAILED here if desired, but throw for now
-            throw new RuntimeException("Ingestion failed", e);
+            log.error("Failed to publish ingestion event for Batch ID: {} - Worker will recover.", batchId, e);
         }
+    }
 
-        return batchId;
+    /**
+     * Looks a batch up in the hot collection first, then in the archive.
+     *
+     * @return the {@link BatchDocument} or {@link ArchivedBatchDocument}, or
+     *         empty if the batch is unknown or expired
+     */
+    public Optional<Object> findBatch(String batchId) {
+        BatchDocument batch = mongoTemplate.findById(batchId, BatchDocument.class);
+        if (batch != null) {
+            return Optional.of(batch);
+        }
+        return Optional.ofNullable(mongoTemplate.findById(batchId, ArchivedBatchDocument.class));
     }
 }
@@ -0,0 +1,11 @@
+package com.example.ingestiongateway.service;
+
+/**
+ * A failure deliberately raised by a {@link FaultInjector}.
+ */
+public class InjectedFaultException extends RuntimeException {
+
+    public InjectedFaultException(String stage) {
+        super("Injected failure at stage " + stage);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.ingestiongateway.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a resumable upload request does not fit its session: a chunk
+ * of the wrong size or number, or a session that is no longer open.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidUploadException extends RuntimeException {
+
+    public InvalidUploadException(String message) {
+        super(message);
+    }
+}
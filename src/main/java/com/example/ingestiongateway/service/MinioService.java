@@ -1,7 +1,11 @@
 package com.example.ingestiongateway.service;
 
+import com.example.ingestiongateway.config.CompressionProperties;
+import com.example.ingestiongateway.config.MinioEndpointBalancer;
+import com.example.ingestiongateway.util.CompressionCodec;
 import io.minio.BucketExistsArgs;
 import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import io.minio.PutObjectArgs;
 import jakarta.annotation.PostConstruct;
@@ -9,7 +13,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 @Service
 @RequiredArgsConstructor
@@ -17,6 +20,21 @@ import org.springframework.web.multipart.MultipartFile;
 public class MinioService {
 
     private final MinioClient minioClient;
+    private final MinioAsyncClient minioAsyncClient;
+    private final CompressionProperties compressionProperties;
+    private final MinioEndpointBalancer minioEndpointBalancer;
+    private MultipartMinioClient multipartClient;
+
+    /**
+     * Part size for a stream whose length is unknown up front and whose
+     * original length was not recorded either (objects stored before it
+     * was); caps such objects at 10,000 parts.
+     */
+    static final long STREAM_PART_SIZE = 16L * 1024 * 1024;
+
+    // S3 limits: every part but the last must be at least 5 MiB, at most 10,000 parts
+    static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    static final int MAX_PARTS = 10_000;
 
     @Value("${minio.bucket-tmp}")
     private String tmpBucketName;
@@ -26,6 +44,7 @@ public class MinioService {
 
     @PostConstruct
     public void init() {
+        multipartClient = new MultipartMinioClient(minioAsyncClient);
         createBucketIfNotExists(tmpBucketName);
         createBucketIfNotExists(prodBucketName);
     }
@@ -45,40 +64,288 @@ public class MinioService {
     }
 
     /**
-     * Uploads file to temporary bucket with content-based deduplication.
-     * Path: yy/MM/dd/SHA256Hash
+     * Uploads a buffered file to temporary bucket with content-based deduplication.
+     * Path: yy/MM/dd/SHA256Hash, plus the codec's extension when compressed
      * 
+     * @param codec compresses the content while it is streamed to MinIO, or
+     *              null to store it as received
      * @return The relative path (yy/MM/dd/hash)
      */
-    public String uploadToTmp(MultipartFile file) {
+    public String uploadToTmp(IngestBuffer file, CompressionCodec codec) {
         try {
-            // 1. Calculate Hash
-            String hash = calculateSha256(file);
+            // 1. Hash was calculated while buffering, over the original bytes
+            String hash = file.getSha256();
 
             // 2. Generate Date Path
-            java.time.LocalDate now = java.time.LocalDate.now();
-            String datePath = String.format("%02d/%02d/%02d", now.getYear() % 100, now.getMonthValue(),
-                    now.getDayOfMonth());
-            String objectName = datePath + "/" + hash;
+            String objectName = tmpObjectName(hash, codec);
 
             // 3. Upload (Idempotent if hash matches)
             // Check if exists to avoid re-uploading? For now just put (overwrite is fine
             // for same content)
+            try (java.io.InputStream stream = file.openStream()) {
+                putTmpObject(objectName, stream, file.getSize(), file.getContentType(), codec);
+            }
+
+            log.info("Uploaded to tmp: {}", objectName);
+            return objectName;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to upload to tmp bucket", e);
+        }
+    }
+
+    private void putTmpObject(String objectName, java.io.InputStream content, long size, String contentType,
+            CompressionCodec codec) throws Exception {
+        PutObjectArgs.Builder args = PutObjectArgs.builder()
+                .bucket(tmpBucketName)
+                .object(objectName)
+                .contentType(contentType);
+        if (codec == null) {
+            minioClient.putObject(args.stream(content, size, -1).build());
+            return;
+        }
+        // Compressed length is only known once the stream is drained
+        try (java.io.InputStream compressed = codec.compress(content, compressionProperties.getZstdLevel())) {
+            minioClient.putObject(streamOfUnknownLength(args, compressed, size)
+                    .userMetadata(compressionMetadata(codec, size))
+                    .build());
+        }
+    }
+
+    /**
+     * Sets a stream whose length is only known once it is drained. minio-java
+     * buffers a whole part of such a stream, so content expected to fit in
+     * one part is read into memory here and PUT with its length, and larger
+     * content gets a part size derived from {@code expectedSize}.
+     *
+     * @param expectedSize original length of the content, or -1 if unknown
+     */
+    static PutObjectArgs.Builder streamOfUnknownLength(PutObjectArgs.Builder args, java.io.InputStream stream,
+            long expectedSize) throws java.io.IOException {
+        if (expectedSize >= 0 && expectedSize < MIN_PART_SIZE) {
+            byte[] content = stream.readAllBytes();
+            return args.stream(new java.io.ByteArrayInputStream(content), content.length, -1);
+        }
+        return args.stream(stream, -1, partSizeFor(expectedSize));
+    }
+
+    /**
+     * Smallest part size, in whole MiB and at least 5 MiB, that fits
+     * {@code expectedSize} bytes plus codec overhead in 10,000 parts.
+     */
+    static long partSizeFor(long expectedSize) {
+        if (expectedSize < 0) {
+            return STREAM_PART_SIZE;
+        }
+        // Incompressible content comes out of a codec slightly larger
+        long withOverhead = expectedSize + expectedSize / 64;
+        long perPart = (withOverhead + MAX_PARTS - 1) / MAX_PARTS;
+        long mebibyte = 1024L * 1024;
+        return Math.max(MIN_PART_SIZE, (perPart + mebibyte - 1) / mebibyte * mebibyte);
+    }
+
+    /**
+     * User metadata (x-amz-meta-*) describing a compressed object, so it can
+     * be read back without its batch.
+     */
+    public static java.util.Map<String, String> compressionMetadata(CompressionCodec codec, long originalSize) {
+        return java.util.Map.of("codec", codec.id(), "original-size", Long.toString(originalSize));
+    }
+
+    /**
+     * Content-addressed object name in the temp bucket: yy/MM/dd/hash
+     */
+    public static String tmpObjectName(String hash) {
+        return tmpDatePrefix(java.time.LocalDate.now()) + hash;
+    }
+
+    /**
+     * As {@link #tmpObjectName(String)}, with the codec's extension when
+     * compressed so plain and compressed copies never share a name.
+     */
+    public static String tmpObjectName(String hash, CompressionCodec codec) {
+        return codec != null ? tmpObjectName(hash) + codec.extension() : tmpObjectName(hash);
+    }
+
+    /**
+     * Temp bucket prefix holding the objects uploaded on a day: yy/MM/dd/
+     */
+    public static String tmpDatePrefix(java.time.LocalDate date) {
+        return String.format("%02d/%02d/%02d/", date.getYear() % 100, date.getMonthValue(), date.getDayOfMonth());
+    }
+
+    /**
+     * Streams the names of all temp bucket objects under a prefix.
+     */
+    public void forEachTmpObject(String prefix, java.util.function.Consumer<String> action) {
+        Iterable<io.minio.Result<io.minio.messages.Item>> results = minioClient.listObjects(
+                io.minio.ListObjectsArgs.builder()
+                        .bucket(tmpBucketName)
+                        .prefix(prefix)
+                        .recursive(true)
+                        .build());
+        try {
+            for (io.minio.Result<io.minio.messages.Item> result : results) {
+                action.accept(result.get().objectName());
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to list tmp bucket prefix " + prefix, e);
+        }
+    }
+
+    /**
+     * Deletes temp bucket objects in one multi-object delete request.
+     *
+     * @return the number of objects deleted
+     */
+    public int removeTmpObjects(java.util.List<String> objectNames) {
+        Iterable<io.minio.Result<io.minio.messages.DeleteError>> errors = minioClient.removeObjects(
+                io.minio.RemoveObjectsArgs.builder()
+                        .bucket(tmpBucketName)
+                        .objects(objectNames.stream().map(io.minio.messages.DeleteObject::new).toList())
+                        .build());
+        int failed = 0;
+        try {
+            // Lazy: the request is only sent while iterating
+            for (io.minio.Result<io.minio.messages.DeleteError> result : errors) {
+                io.minio.messages.DeleteError error = result.get();
+                log.error("Failed to delete tmp object {}: {}", error.objectName(), error.message());
+                failed++;
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to delete tmp objects", e);
+        }
+        return objectNames.size() - failed;
+    }
+
+    /**
+     * Pack object in the temp bucket holding many small files: yy/MM/dd/packs/id.
+     * Under the day prefix, so the tmp GC collects it once no batch references it.
+     */
+    public static String packObjectName(java.time.LocalDate date, String packId) {
+        return tmpDatePrefix(date) + "packs/" + packId;
+    }
+
+    /**
+     * Writes a sealed pack to the temp bucket in one PUT.
+     */
+    public void uploadPack(String objectName, byte[] content, int length) {
+        try (java.io.InputStream stream = new java.io.ByteArrayInputStream(content, 0, length)) {
             minioClient.putObject(
                     PutObjectArgs.builder()
                             .bucket(tmpBucketName)
                             .object(objectName)
-                            .stream(file.getInputStream(), file.getSize(), -1)
-                            .contentType(file.getContentType())
+                            .stream(stream, length, -1)
+                            .contentType("application/octet-stream")
                             .build());
+            log.info("Uploaded pack to tmp: {} ({} bytes)", objectName, length);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to upload pack " + objectName, e);
+        }
+    }
 
-            log.info("Uploaded to tmp: {}", objectName);
+    /**
+     * Staging object in the temp bucket that a resumable upload session
+     * assembles into. Outside the yy/MM/dd/ prefixes, so the tmp GC never
+     * sees it.
+     */
+    public static String stagingObjectName(String sessionId) {
+        return "uploads/" + sessionId;
+    }
+
+    /**
+     * Starts a multipart upload of a staging object.
+     *
+     * @return the MinIO upload ID
+     */
+    public String createStagingUpload(String stagingObject, String contentType) {
+        try {
+            return multipartClient.createUpload(tmpBucketName, stagingObject, contentType);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create multipart upload for " + stagingObject, e);
+        }
+    }
+
+    /**
+     * Uploads one part of a staging object from a local file.
+     *
+     * @return the part's ETag
+     */
+    public String uploadStagingPart(String stagingObject, String uploadId, int partNumber, java.nio.file.Path file,
+            long size) {
+        try {
+            return multipartClient.uploadPart(tmpBucketName, stagingObject, uploadId, partNumber, file, size);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to upload part " + partNumber + " of " + stagingObject, e);
+        }
+    }
+
+    public void completeStagingUpload(String stagingObject, String uploadId,
+            java.util.List<io.minio.messages.Part> parts) {
+        try {
+            multipartClient.completeUpload(tmpBucketName, stagingObject, uploadId, parts);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to complete multipart upload of " + stagingObject, e);
+        }
+    }
+
+    public void abortStagingUpload(String stagingObject, String uploadId) {
+        try {
+            multipartClient.abortUpload(tmpBucketName, stagingObject, uploadId);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to abort multipart upload of " + stagingObject, e);
+        }
+    }
+
+    /**
+     * Hashes an assembled staging object by streaming it back and copies it
+     * server-side to its content-addressed name. The staging object is kept;
+     * the caller removes it once the file is ingested.
+     *
+     * @return The relative path (yy/MM/dd/hash)
+     */
+    public String promoteStagingObject(String stagingObject) {
+        try {
+            String hash;
+            try (java.io.InputStream stream = minioClient.getObject(io.minio.GetObjectArgs.builder()
+                    .bucket(tmpBucketName)
+                    .object(stagingObject)
+                    .build())) {
+                hash = com.example.ingestiongateway.util.ContentHasher.sha256Hex(stream);
+            }
+
+            String objectName = tmpObjectName(hash);
+            // composeObject falls back to a multipart copy above the 5 GiB CopyObject limit
+            minioClient.composeObject(io.minio.ComposeObjectArgs.builder()
+                    .bucket(tmpBucketName)
+                    .object(objectName)
+                    .sources(java.util.List.of(io.minio.ComposeSource.builder()
+                            .bucket(tmpBucketName)
+                            .object(stagingObject)
+                            .build()))
+                    .build());
+
+            log.info("Promoted {} to tmp: {}", stagingObject, objectName);
             return objectName;
         } catch (Exception e) {
-            throw new RuntimeException("Failed to upload to tmp bucket", e);
+            throw new RuntimeException("Failed to promote staging object " + stagingObject, e);
         }
     }
 
+    public void removeStagingObject(String stagingObject) {
+        try {
+            minioClient.removeObject(io.minio.RemoveObjectArgs.builder()
+                    .bucket(tmpBucketName)
+                    .object(stagingObject)
+                    .build());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to remove staging object " + stagingObject, e);
+        }
+    }
+
+    public String getTmpBucketName() {
+        return tmpBucketName;
+    }
+
     public void copyToProd(com.example.ingestiongateway.model.FileTransferRequest request) {
         // Source: tmp/path
         // Dest: prod/yy/mm/dd/uuid/filename
@@ -91,10 +358,16 @@ public class MinioService {
         // Let's use the first 3 segments of tempPath.
 
         try {
-            String[] parts = request.getTempPath().split("/");
-            String datePath = parts[0] + "/" + parts[1] + "/" + parts[2];
+            String destPath = request.prodObjectName();
 
-            String destPath = datePath + "/" + request.getProdUuid() + "/" + request.getTargetFilename();
+            if (request.packed()) {
+                copyPackedToProd(request, destPath);
+                return;
+            }
+            if (request.getCodec() != null && !request.isKeepCompressed()) {
+                copyDecompressedToProd(request, destPath);
+                return;
+            }
 
             minioClient.copyObject(
                     io.minio.CopyObjectArgs.builder()
@@ -115,19 +388,57 @@ public class MinioService {
         }
     }
 
-    private String calculateSha256(MultipartFile file) throws Exception {
-        java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-256");
-        try (java.io.InputStream is = file.getInputStream()) {
-            byte[] buffer = new byte[8192];
-            int read;
-            while ((read = is.read(buffer)) != -1) {
-                digest.update(buffer, 0, read);
+    /**
+     * Streams a compressed temp object through its codec into prod, so
+     * consumers get the original bytes.
+     */
+    private void copyDecompressedToProd(com.example.ingestiongateway.model.FileTransferRequest request,
+            String destPath) throws Exception {
+        CompressionCodec codec = CompressionCodec.of(request.getCodec());
+        try (MinioEndpointBalancer.CopyPermit permit = minioEndpointBalancer.acquireCopy();
+                io.minio.GetObjectResponse object = minioClient.getObject(io.minio.GetObjectArgs.builder()
+                        .bucket(tmpBucketName)
+                        .object(request.getTempPath())
+                        .build());
+                java.io.InputStream stream = codec.decompress(object)) {
+            // Recorded by putTmpObject; absent on objects stored before it was
+            String originalSize = object.headers().get("x-amz-meta-original-size");
+            PutObjectArgs.Builder args = streamOfUnknownLength(PutObjectArgs.builder()
+                    .bucket(prodBucketName)
+                    .object(destPath), stream, originalSize != null ? Long.parseLong(originalSize) : -1);
+            if (request.getContentType() != null) {
+                args.contentType(request.getContentType());
             }
+            minioClient.putObject(args.build());
         }
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : digest.digest()) {
-            hexString.append(String.format("%02x", b));
+
+        log.info("Copied {} from {} to {} decompressed", codec.id(), request.getTempPath(), destPath);
+    }
+
+    /**
+     * Server-side copy cannot cut a range out of an object, so a packed file
+     * is streamed out of its pack with a ranged GET and PUT to prod.
+     */
+    private void copyPackedToProd(com.example.ingestiongateway.model.FileTransferRequest request, String destPath)
+            throws Exception {
+        try (MinioEndpointBalancer.CopyPermit permit = minioEndpointBalancer.acquireCopy();
+                java.io.InputStream stream = minioClient.getObject(io.minio.GetObjectArgs.builder()
+                .bucket(tmpBucketName)
+                .object(request.getTempPath())
+                .offset(request.getPackOffset())
+                .length(request.getPackLength())
+                .build())) {
+            PutObjectArgs.Builder args = PutObjectArgs.builder()
+                    .bucket(prodBucketName)
+                    .object(destPath)
+                    .stream(stream, request.getPackLength(), -1);
+            if (request.getContentType() != null) {
+                args.contentType(request.getContentType());
+            }
+            minioClient.putObject(args.build());
         }
-        return hexString.toString();
+
+        log.info("Copied {} bytes at {} of pack {} to {}", request.getPackLength(), request.getPackOffset(),
+                request.getTempPath(), destPath);
     }
 }
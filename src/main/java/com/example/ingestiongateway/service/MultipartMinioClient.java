@@ -0,0 +1,66 @@
+package com.example.ingestiongateway.service;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.messages.Part;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Exposes the low-level S3 multipart calls that minio-java keeps protected,
+ * so an upload session can span several HTTP requests (and gateway
+ * instances): one CreateMultipartUpload, one UploadPart per client chunk, and
+ * a CompleteMultipartUpload at the end.
+ */
+class MultipartMinioClient extends MinioAsyncClient {
+
+    MultipartMinioClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    /**
+     * @return the upload ID
+     */
+    String createUpload(String bucket, String object, String contentType) throws Exception {
+        Multimap<String, String> headers = HashMultimap.create();
+        if (contentType != null) {
+            headers.put("Content-Type", contentType);
+        }
+        return await(createMultipartUploadAsync(bucket, null, object, headers, null)).result().uploadId();
+    }
+
+    /**
+     * Uploads a part from a local file (the client reads it once to sign the
+     * request, then streams it).
+     *
+     * @return the part's ETag
+     */
+    String uploadPart(String bucket, String object, String uploadId, int partNumber, Path file, long size)
+            throws Exception {
+        try (RandomAccessFile data = new RandomAccessFile(file.toFile(), "r")) {
+            return await(uploadPartAsync(bucket, null, object, data, size, uploadId, partNumber, null, null)).etag();
+        }
+    }
+
+    void completeUpload(String bucket, String object, String uploadId, List<Part> parts) throws Exception {
+        await(completeMultipartUploadAsync(bucket, null, object, uploadId, parts.toArray(new Part[0]), null, null));
+    }
+
+    void abortUpload(String bucket, String object, String uploadId) throws Exception {
+        await(abortMultipartUploadAsync(bucket, null, object, uploadId, null, null));
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException | CompletionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+}
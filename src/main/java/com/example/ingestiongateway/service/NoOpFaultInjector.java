@@ -0,0 +1,16 @@
+package com.example.ingestiongateway.service;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Production default: no artificial latency or failures.
+ */
+@Component
+@Profile("!demo")
+public class NoOpFaultInjector implements FaultInjector {
+
+    @Override
+    public void inject(String stage) {
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.ingestiongateway.service;
+
+import com.example.ingestiongateway.config.CompressionProperties;
+import com.example.ingestiongateway.config.LaneProperties;
+import com.example.ingestiongateway.model.BatchDocument;
+import com.example.ingestiongateway.model.FileMetadata;
+import com.example.ingestiongateway.model.FileTransferRequest;
+import com.example.ingestiongateway.model.InnerRecord;
+import com.example.ingestiongateway.model.UserInputRecord;
+import com.example.ingestiongateway.util.CompressionCodec;
+import com.example.ingestiongateway.util.ContentHasher;
+import io.minio.MinioAsyncClient;
+import io.minio.PutObjectArgs;
+import io.minio.UploadObjectArgs;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link IngestionService}, used by the reactive
+ * controller when the app runs with the {@code reactive} profile.
+ * <p>
+ * Multipart bodies are consumed as a stream of {@link PartEvent}s, one file at
+ * a time, so request demand follows how fast each file can be hashed and
+ * written. Each file is hashed as it arrives and kept in memory up to
+ * {@code in-memory-threshold}, like {@link IngestBufferManager} does, or
+ * spilled to disk past it, then handed to {@link MinioAsyncClient}. Batch
+ * state goes through {@link ReactiveMongoTemplate}, and the same PENDING →
+ * READY → Kafka sequence is kept so the existing worker processes the batch.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveIngestionService {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final MinioAsyncClient minioAsyncClient;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ServerIdentityService serverIdentityService;
+    private final TenantAdmissionControl tenantAdmissionControl;
+    private final LaneProperties laneProperties;
+    private final SmallFilePacker smallFilePacker;
+    private final CompressionProperties compressionProperties;
+
+    @Value("${app.worker.topics.ingestion:batch.ingestion.events}")
+    private String ingestionTopic;
+
+    @Value("${minio.bucket-tmp}")
+    private String tmpBucketName;
+
+    @Value("${app.ingest.buffer.spill-dir:${java.io.tmpdir}}")
+    private Path spillDir;
+
+    @Value("${app.ingest.buffer.in-memory-threshold:256KB}")
+    private DataSize inMemoryThreshold;
+
+    /**
+     * @param packed set instead of {@code tmpPath} for a file waiting on its
+     *               pack to be written
+     * @param codec  codec the object was compressed with, or null
+     */
+    private record StagedFile(String filename, String contentType, long size, String tmpPath,
+            CompletableFuture<SmallFilePacker.PackedFile> packed, CompressionCodec codec) {
+    }
+
+    /**
+     * @param contentLength declared request size, counted against the
+     *                      tenant's concurrent byte limit (0 if unknown)
+     */
+    public Mono<String> processUpload(Flux<PartEvent> parts, String userName, long contentLength) {
+        // Admitted on subscription, before the part stream is subscribed: a
+        // rejected request never has its body read. The permit is held until
+        // the pipeline terminates or is cancelled
+        return Mono.using(() -> tenantAdmissionControl.admit(userName, Math.max(0, contentLength)),
+                permit -> ingest(parts, userName),
+                TenantAdmissionControl.Permit::close);
+    }
+
+    private Mono<String> ingest(Flux<PartEvent> parts, String userName) {
+        String batchId = UUID.randomUUID().toString();
+
+        // 1. Create and Save PENDING Document
+        BatchDocument document = BatchDocument.builder()
+                .id(batchId)
+                .status("PENDING")
+                .ingestionTimestamp(Instant.now().toEpochMilli())
+                .createdAt(new Date())
+                .userInput(new UserInputRecord(userName, "upload", new InnerRecord("source", "web-api-reactive")))
+                .serverId(serverIdentityService.getServerId())
+                .build();
+
+        return reactiveMongoTemplate.save(document)
+                .doOnNext(saved -> log.info("Saved PENDING batch: {}", batchId))
+                // 2. Stream each file part to the Tmp Bucket, one at a time
+                .thenMany(parts.windowUntil(PartEvent::isLast).concatMap(this::stagePart))
+                .collectList()
+                // Packed files are only stored once their pack has been written
+                .flatMap(staged -> awaitPacks(staged).thenReturn(staged))
+                // 3. Update and Save READY Document
+                .flatMap(staged -> markReady(document, staged))
+                // 4. Fire Event to Kafka
+                .flatMap(this::publish)
+                .thenReturn(batchId)
+                .onErrorMap(e -> {
+                    log.error("Upload/Ingestion failed for Batch ID: {}", batchId, e);
+                    return new RuntimeException("Ingestion failed", e);
+                });
+    }
+
+    private Mono<StagedFile> stagePart(Flux<PartEvent> partEvents) {
+        return partEvents.switchOnFirst((signal, events) -> {
+            if (signal.get() instanceof FilePartEvent filePart) {
+                MediaType mediaType = filePart.headers().getContentType();
+                return stageFile(filePart.filename(), mediaType != null ? mediaType.toString() : null,
+                        events.map(PartEvent::content));
+            }
+            // Form fields are not used here; release their content
+            return events.doOnNext(event -> DataBufferUtils.release(event.content())).then(Mono.empty());
+        }).singleOrEmpty();
+    }
+
+    private Mono<StagedFile> stageFile(String filename, String contentType, Flux<DataBuffer> content) {
+        return Mono.usingWhen(
+                Mono.fromCallable(() -> new PartSpool(spillDir, inMemoryThreshold.toBytes())),
+                spool -> content
+                        // Writes block once the part has been spilled
+                        .publishOn(Schedulers.boundedElastic())
+                        .<Void>handle((buffer, sink) -> {
+                            try {
+                                spool.write(buffer);
+                            } catch (IOException e) {
+                                sink.error(e);
+                            } finally {
+                                DataBufferUtils.release(buffer);
+                            }
+                        })
+                        .then(Mono.fromCallable(spool::finish))
+                        .flatMap(hash -> {
+                            long size = spool.size();
+                            if (smallFilePacker.accepts(size)) {
+                                return addToPack(spool, hash).map(packed -> new StagedFile(filename,
+                                        contentType, size, null, packed, null));
+                            }
+                            CompressionCodec codec = compressionProperties.codecFor(contentType, size);
+                            return uploadToTmp(spool, MinioService.tmpObjectName(hash, codec), contentType, codec)
+                                    .map(tmpPath -> new StagedFile(filename, contentType, size, tmpPath, null,
+                                            codec));
+                        }),
+                spool -> Mono.fromRunnable(spool::close).subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private Mono<String> uploadToTmp(PartSpool spool, String objectName, String contentType,
+            CompressionCodec codec) {
+        if (codec != null) {
+            return uploadCompressed(spool, objectName, contentType, codec);
+        }
+        return Mono.fromCallable(() -> {
+            if (spool.isSpilled()) {
+                UploadObjectArgs.Builder args = UploadObjectArgs.builder()
+                        .bucket(tmpBucketName)
+                        .object(objectName)
+                        .filename(spool.spill().toString());
+                if (contentType != null) {
+                    args.contentType(contentType);
+                }
+                return minioAsyncClient.uploadObject(args.build());
+            }
+            PutObjectArgs.Builder args = PutObjectArgs.builder()
+                    .bucket(tmpBucketName)
+                    .object(objectName)
+                    .stream(spool.openStream(), spool.size(), -1);
+            if (contentType != null) {
+                args.contentType(contentType);
+            }
+            return minioAsyncClient.putObject(args.build());
+        })
+                // Opening the spill file for upload is a blocking call
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(Mono::fromFuture)
+                .doOnNext(response -> log.info("Uploaded to tmp: {}", objectName))
+                .thenReturn(objectName);
+    }
+
+    /**
+     * Streams the part through the codec into MinIO; the compressed length is
+     * unknown until the part has been read.
+     */
+    private Mono<String> uploadCompressed(PartSpool spool, String objectName, String contentType,
+            CompressionCodec codec) {
+        return Mono.using(
+                () -> codec.compress(spool.openStream(), compressionProperties.getZstdLevel()),
+                compressed -> Mono.fromCallable(() -> {
+                    PutObjectArgs.Builder args = MinioService.streamOfUnknownLength(PutObjectArgs.builder()
+                            .bucket(tmpBucketName)
+                            .object(objectName), compressed, spool.size())
+                            .userMetadata(MinioService.compressionMetadata(codec, spool.size()));
+                    if (contentType != null) {
+                        args.contentType(contentType);
+                    }
+                    return minioAsyncClient.putObject(args.build());
+                }).flatMap(Mono::fromFuture),
+                this::closeQuietly)
+                // Reading and compressing the part is blocking
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(response -> log.info("Uploaded to tmp: {} ({})", objectName, codec.id()))
+                .thenReturn(objectName);
+    }
+
+    private Mono<CompletableFuture<SmallFilePacker.PackedFile>> addToPack(PartSpool spool, String hash) {
+        // Does not wait for the pack, so the next file part is read meanwhile
+        return Mono.fromCallable(() -> smallFilePacker.add(hash, spool.readAllBytes()))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static Mono<Void> awaitPacks(List<StagedFile> staged) {
+        return Mono.fromFuture(CompletableFuture.allOf(staged.stream()
+                .map(StagedFile::packed)
+                .filter(Objects::nonNull)
+                .toArray(CompletableFuture[]::new)));
+    }
+
+    private Mono<BatchDocument> markReady(BatchDocument document, List<StagedFile> staged) {
+        List<FileMetadata> metadata = new ArrayList<>();
+        List<FileTransferRequest> transferRequests = new ArrayList<>();
+        for (StagedFile file : staged) {
+            // Already complete: awaited before markReady
+            SmallFilePacker.PackedFile packed = file.packed() != null ? file.packed().join() : null;
+            boolean keepCompressed = file.codec() != null && !compressionProperties.isDecompressOnDelivery();
+            transferRequests.add(FileTransferRequest.builder()
+                    .tempPath(packed != null ? packed.packPath() : file.tmpPath())
+                    .prodUuid(UUID.randomUUID().toString())
+                    .targetFilename(file.filename())
+                    .contentType(file.contentType())
+                    .packOffset(packed != null ? packed.offset() : null)
+                    .packLength(packed != null ? packed.length() : null)
+                    .codec(file.codec() != null ? file.codec().id() : null)
+                    .keepCompressed(keepCompressed)
+                    .build());
+            List<InnerRecord> innerRecords = new ArrayList<>(List.of(
+                    new InnerRecord("type", file.contentType()),
+                    new InnerRecord("status", "received")));
+            if (file.codec() != null) {
+                // How the temp object is stored, whatever is delivered
+                innerRecords.add(new InnerRecord("tmp-codec", file.codec().id()));
+            }
+            if (keepCompressed) {
+                // The prod object is compressed; consumers decompress with this codec
+                innerRecords.add(new InnerRecord("codec", file.codec().id()));
+            }
+            metadata.add(new FileMetadata(file.filename(), document.getId(), file.size(), innerRecords));
+        }
+
+        document.setStatus("READY");
+        document.setLane(laneProperties.laneOf(staged.stream().mapToLong(StagedFile::size).sum(), staged.size()));
+        document.setKafkaMetadataAlpha(metadata);
+        document.setKafkaMetadataBeta(metadata);
+        document.setTransferRequests(transferRequests);
+        return reactiveMongoTemplate.save(document)
+                .doOnNext(saved -> log.info("Saved READY batch: {}", saved.getId()));
+    }
+
+    private Mono<Void> publish(BatchDocument document) {
+        // send() can block on metadata while Kafka is unreachable
+        return Mono.fromCallable(() -> kafkaTemplate.send(
+                LaneProperties.topic(ingestionTopic, document.getLane()), document))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(Mono::fromFuture)
+                .doOnNext(result -> log.info("Published ingestion event for Batch ID: {}", document.getId()))
+                .onErrorResume(e -> {
+                    log.error("Failed to publish ingestion event for Batch ID: {} - Worker will recover.",
+                            document.getId(), e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            log.warn("Failed to close upload stream", e);
+        }
+    }
+
+    /**
+     * One file part as it arrives: hashed, and kept in memory until it grows
+     * past the threshold, then moved to a spill file. Written from one thread
+     * at a time; {@link #close} deletes the spill file.
+     */
+    private static final class PartSpool implements AutoCloseable {
+
+        private final Path spillDir;
+        private final long threshold;
+        private final ContentHasher hasher = ContentHasher.acquire();
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private Path spill;
+        private OutputStream spillStream;
+        private long size;
+
+        PartSpool(Path spillDir, long threshold) {
+            this.spillDir = spillDir;
+            this.threshold = threshold;
+        }
+
+        void write(DataBuffer buffer) throws IOException {
+            byte[] chunk = new byte[buffer.readableByteCount()];
+            buffer.read(chunk);
+            hasher.update(chunk, 0, chunk.length);
+            size += chunk.length;
+            if (spill == null && size > threshold) {
+                spill = Files.createTempFile(spillDir, "ingest-", ".part");
+                spillStream = new BufferedOutputStream(Files.newOutputStream(spill));
+                memory.writeTo(spillStream);
+                memory = null;
+            }
+            if (spill != null) {
+                spillStream.write(chunk);
+            } else {
+                memory.write(chunk, 0, chunk.length);
+            }
+        }
+
+        /**
+         * Ends the part.
+         *
+         * @return the SHA-256 of its content
+         */
+        String finish() throws IOException {
+            if (spillStream != null) {
+                spillStream.close();
+            }
+            return hasher.hexDigest();
+        }
+
+        long size() {
+            return size;
+        }
+
+        boolean isSpilled() {
+            return spill != null;
+        }
+
+        Path spill() {
+            return spill;
+        }
+
+        InputStream openStream() throws IOException {
+            return spill != null ? Files.newInputStream(spill) : new ByteArrayInputStream(memory.toByteArray());
+        }
+
+        byte[] readAllBytes() throws IOException {
+            return spill != null ? Files.readAllBytes(spill) : memory.toByteArray();
+        }
+
+        @Override
+        public void close() {
+            hasher.close();
+            if (spill == null) {
+                return;
+            }
+            try {
+                if (spillStream != null) {
+                    spillStream.close();
+                }
+                Files.deleteIfExists(spill);
+            } catch (IOException e) {
+                log.warn("Failed to delete spill file {}", spill, e);
+            }
+        }
+    }
+}
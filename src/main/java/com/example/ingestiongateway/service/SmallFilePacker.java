@@ -0,0 +1,317 @@
+package com.example.ingestiongateway.service;
+
+import com.example.ingestiongateway.model.PackIndexEntry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces small files into pack objects in the temp bucket, so a burst of
+ * tiny uploads costs one PUT per pack instead of one per file.
+ * <p>
+ * Each instance keeps one open pack in memory. Files are appended to it until
+ * it reaches {@code target-pack-size} or {@code max-files-per-pack}, or until
+ * {@code linger-ms} after its first file, then the pack is written to
+ * {@code yy/MM/dd/packs/<id>} in a single PUT and its (hash → pack, offset,
+ * length) entries are recorded in {@code pack_index}. A file is only stored
+ * once its pack has been written: callers wait on the returned future before
+ * a batch referencing it becomes READY, so a crash loses nothing a batch
+ * points at.
+ * <p>
+ * A file whose content was already packed today is not packed again; the
+ * index entry is reused. Older packs are never reused, because the tmp bucket
+ * GC may be sweeping their day prefix.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SmallFilePacker {
+
+    private final MinioService minioService;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.pack.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.pack.max-file-size:64KB}")
+    private DataSize maxFileSize;
+
+    @Value("${app.pack.target-pack-size:8MB}")
+    private DataSize targetPackSize;
+
+    @Value("${app.pack.max-files-per-pack:2000}")
+    private int maxFilesPerPack;
+
+    @Value("${app.pack.linger-ms:200}")
+    private long lingerMs;
+
+    @Value("${app.pack.flush-threads:2}")
+    private int flushThreads;
+
+    @Value("${app.pack.index-ttl-hours:48}")
+    private long indexTtlHours;
+
+    @Value("${app.pack.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    private ScheduledExecutorService flusher; // null when packing is disabled
+    private Pack open; // guarded by this
+    private boolean shutdown; // guarded by this
+
+    // Sealed packs queued on the flusher and not yet started
+    private final Set<Pack> queued = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Where a packed file's bytes were stored.
+     */
+    public record PackedFile(String packPath, long offset, long length) {
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(flushThreads,
+                new CustomizableThreadFactory("pack-flusher-"));
+        // Linger timers are moot once shutdown has sealed the open pack
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        flusher = executor;
+        try {
+            // Entries are only reused on the day they were written
+            mongoTemplate.indexOps(PackIndexEntry.class)
+                    .ensureIndex(new Index().on("createdAt", Sort.Direction.ASC)
+                            .expire(Duration.ofHours(indexTtlHours))
+                            .named("ttl_index"));
+        } catch (Exception e) {
+            log.error("Failed to ensure TTL index on {}", PackIndexEntry.COLLECTION_NAME, e);
+        }
+    }
+
+    /**
+     * Stops accepting files, writes the open pack and lets queued packs
+     * finish for up to {@code shutdown-timeout-ms}. Callers waiting on a pack
+     * that was never written get an exception rather than waiting forever.
+     */
+    @PreDestroy
+    public void shutdown() {
+        Pack last;
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+            last = open;
+            open = null;
+        }
+        if (flusher == null) {
+            return;
+        }
+        // Write what is buffered: its callers are still waiting for it
+        if (last != null) {
+            flush(last);
+        }
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Pack flusher did not finish within {} ms", shutdownTimeoutMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flusher.shutdownNow();
+        for (Pack pack : queued) {
+            if (queued.remove(pack)) {
+                log.error("Pack {} with {} files was not written before shutdown", pack.objectName,
+                        pack.offsets.size());
+                pack.written.completeExceptionally(
+                        new IllegalStateException("Shut down before pack " + pack.objectName + " was written"));
+            }
+        }
+    }
+
+    /**
+     * @return whether a file of this size should be packed
+     */
+    public boolean accepts(long size) {
+        return enabled && size <= maxFileSize.toBytes();
+    }
+
+    public CompletableFuture<PackedFile> add(IngestBuffer buffer) throws IOException {
+        byte[] content;
+        try (InputStream stream = buffer.openStream()) {
+            content = stream.readAllBytes();
+        }
+        return add(buffer.getSha256(), content);
+    }
+
+    /**
+     * Appends a file to the open pack.
+     *
+     * @return completes once the pack holding the file has been written
+     */
+    public CompletableFuture<PackedFile> add(String hash, byte[] content) {
+        LocalDate today = LocalDate.now();
+        PackIndexEntry existing = findToday(hash, today);
+        if (existing != null) {
+            return CompletableFuture.completedFuture(
+                    new PackedFile(existing.getPackPath(), existing.getOffset(), existing.getLength()));
+        }
+
+        Pack pack;
+        long offset;
+        boolean full;
+        synchronized (this) {
+            if (flusher == null || shutdown) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Small-file packing is not running"));
+            }
+            if (open == null) {
+                open = new Pack(MinioService.packObjectName(today, UUID.randomUUID().toString()));
+                Pack opened = open;
+                flusher.schedule(() -> sealIfOpen(opened), lingerMs, TimeUnit.MILLISECONDS);
+            }
+            pack = open;
+            offset = pack.append(hash, content);
+            full = pack.length >= targetPackSize.toBytes() || pack.offsets.size() >= maxFilesPerPack;
+            if (full) {
+                open = null;
+                queued.add(pack);
+            }
+        }
+        if (full) {
+            try {
+                flusher.execute(() -> flushQueued(pack));
+            } catch (RejectedExecutionException e) {
+                flushQueued(pack); // Shutting down: write it on the caller's thread
+            }
+        }
+        return pack.written.thenApply(v -> new PackedFile(pack.objectName, offset, content.length));
+    }
+
+    private PackIndexEntry findToday(String hash, LocalDate today) {
+        try {
+            PackIndexEntry entry = mongoTemplate.findById(hash, PackIndexEntry.class);
+            return entry != null && entry.getPackPath().startsWith(MinioService.tmpDatePrefix(today)) ? entry : null;
+        } catch (Exception e) {
+            // Only a missed dedup
+            log.warn("Pack index lookup failed for {}", hash, e);
+            return null;
+        }
+    }
+
+    private void sealIfOpen(Pack pack) {
+        synchronized (this) {
+            if (open != pack) {
+                return; // Already sealed when it filled up
+            }
+            open = null;
+        }
+        flush(pack);
+    }
+
+    private void flushQueued(Pack pack) {
+        // Not claimed by shutdown in the meantime
+        if (queued.remove(pack)) {
+            flush(pack);
+        }
+    }
+
+    void flush(Pack pack) {
+        try {
+            minioService.uploadPack(pack.objectName, pack.content, pack.length);
+        } catch (Exception e) {
+            log.error("Failed to write pack {} with {} files", pack.objectName, pack.offsets.size(), e);
+            pack.written.completeExceptionally(e);
+            return;
+        }
+        recordIndex(pack);
+        pack.written.complete(null);
+    }
+
+    private void recordIndex(Pack pack) {
+        try {
+            Date now = new Date();
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PackIndexEntry.class);
+            pack.offsets.forEach((hash, offset) -> bulk.replaceOne(
+                    Query.query(Criteria.where("_id").is(hash)),
+                    PackIndexEntry.builder()
+                            .id(hash)
+                            .packPath(pack.objectName)
+                            .offset(offset)
+                            .length(pack.lengths.get(hash))
+                            .createdAt(now)
+                            .build(),
+                    FindAndReplaceOptions.options().upsert()));
+            bulk.execute();
+        } catch (Exception e) {
+            // The pack is written and the batches carry their own offsets; only dedup is lost
+            log.warn("Failed to index pack {}", pack.objectName, e);
+        }
+    }
+
+    /**
+     * A pack being filled. Mutated only under the packer's lock until sealed.
+     */
+    static final class Pack {
+
+        final String objectName;
+        final Map<String, Long> offsets = new LinkedHashMap<>();
+        final Map<String, Long> lengths = new LinkedHashMap<>();
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+        byte[] content = new byte[64 * 1024];
+        int length;
+
+        Pack(String objectName) {
+            this.objectName = objectName;
+        }
+
+        /**
+         * @return the file's offset in the pack; an identical file already in
+         *         this pack is not appended again
+         */
+        long append(String hash, byte[] file) {
+            Long existing = offsets.get(hash);
+            if (existing != null) {
+                return existing;
+            }
+            if (length + file.length > content.length) {
+                content = Arrays.copyOf(content, Math.max(content.length * 2, length + file.length));
+            }
+            System.arraycopy(file, 0, content, length, file.length);
+            long offset = length;
+            length += file.length;
+            offsets.put(hash, offset);
+            lengths.put(hash, (long) file.length);
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.ingestiongateway.service;
+
+import com.example.ingestiongateway.config.TenantProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-tenant admission on the upload paths. A request is admitted only if
+ * its {@code userName} has a token left in its request-rate bucket, is below
+ * its concurrent request cap, and the request's bytes fit under its
+ * concurrent byte cap; otherwise it is rejected with
+ * {@link CapacityExceededException} (HTTP 429) before any bytes are buffered
+ * or uploaded. One tenant flooding the gateway therefore only slows itself
+ * down.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TenantAdmissionControl {
+
+    private final TenantProperties tenantProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, TenantState> tenants = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+
+    /**
+     * Admits a request of {@code bytes} for a tenant. The returned permit
+     * must be closed when the request finishes.
+     *
+     * @throws CapacityExceededException if the tenant is over a limit
+     */
+    public Permit admit(String userName, long bytes) {
+        String tenant = userName != null ? userName : "";
+        TenantProperties.Limits limits = tenantProperties.limitsFor(userName);
+        TenantState state;
+        String rejected;
+        do {
+            state = tenants.computeIfAbsent(tenant, key -> new TenantState(limits.getBurst()));
+            rejected = state.tryAcquire(limits, bytes, System.nanoTime());
+            // Lost a race with evictIdle(); the next computeIfAbsent creates a fresh entry
+        } while (rejected == TenantState.EVICTED);
+        if (rejected != null) {
+            rejections.computeIfAbsent(rejected, reason -> Counter.builder("ingestion.admission.rejected")
+                    .tag("reason", reason)
+                    .register(meterRegistry)).increment();
+            throw new CapacityExceededException("Tenant " + tenant + " is over its " + rejected + " limit");
+        }
+        return new Permit(state, bytes);
+    }
+
+    /**
+     * Drops state for tenants with nothing in flight and a full bucket, i.e.
+     * exactly what a fresh entry would hold.
+     */
+    @Scheduled(fixedDelayString = "${app.tenants.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        tenants.forEach((tenant, state) -> {
+            if (state.evictIfIdle(tenantProperties.limitsFor(tenant), now)) {
+                tenants.remove(tenant, state);
+            }
+        });
+    }
+
+    /**
+     * Releases a tenant's in-flight request and bytes once; closing twice is
+     * harmless.
+     */
+    public static final class Permit implements AutoCloseable {
+
+        private final TenantState state;
+        private final long bytes;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(TenantState state, long bytes) {
+            this.state = state;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                state.release(bytes);
+            }
+        }
+    }
+
+    static final class TenantState {
+
+        static final String EVICTED = "evicted";
+
+        private double tokens;
+        private long lastRefillNanos;
+        private int inFlightRequests;
+        private long inFlightBytes;
+        private boolean evicted;
+
+        TenantState(int burst) {
+            this.tokens = burst;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        /**
+         * @return null if admitted, {@link #EVICTED} if this entry was dropped,
+         *         otherwise the name of the limit hit
+         */
+        synchronized String tryAcquire(TenantProperties.Limits limits, long bytes, long nowNanos) {
+            if (evicted) {
+                return EVICTED;
+            }
+            refill(limits, nowNanos);
+            if (inFlightRequests >= limits.getMaxConcurrentRequests()) {
+                return "concurrent-requests";
+            }
+            // A single request larger than the cap is still let through when the tenant is otherwise idle
+            if (inFlightRequests > 0 && inFlightBytes + bytes > limits.getMaxConcurrentBytes().toBytes()) {
+                return "concurrent-bytes";
+            }
+            if (tokens < 1) {
+                return "request-rate";
+            }
+            tokens -= 1;
+            inFlightRequests++;
+            inFlightBytes += bytes;
+            return null;
+        }
+
+        synchronized void release(long bytes) {
+            inFlightRequests--;
+            inFlightBytes -= bytes;
+        }
+
+        synchronized boolean evictIfIdle(TenantProperties.Limits limits, long nowNanos) {
+            refill(limits, nowNanos);
+            evicted = inFlightRequests == 0 && tokens >= limits.getBurst();
+            return evicted;
+        }
+
+        private void refill(TenantProperties.Limits limits, long nowNanos) {
+            double elapsedSeconds = (nowNanos - lastRefillNanos) / 1e9;
+            tokens = Math.min(limits.getBurst(), tokens + elapsedSeconds * limits.getRequestsPerSecond());
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.ingestiongateway.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown for an unknown or already expired resumable upload session.
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class UploadSessionNotFoundException extends RuntimeException {
+
+    public UploadSessionNotFoundException(String sessionId) {
+        super("Upload session not found: " + sessionId);
+    }
+}
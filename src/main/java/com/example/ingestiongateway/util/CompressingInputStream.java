@@ -0,0 +1,93 @@
+package com.example.ingestiongateway.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Pull-based adapter over a compressing {@link OutputStream}: each read feeds
+ * the next chunk of the source through the compressor and returns whatever
+ * compressed output it produced. Lets a compressed stream be handed to an
+ * uploader that reads, without a pipe thread or buffering the whole result.
+ */
+final class CompressingInputStream extends InputStream {
+
+    interface CompressorFactory {
+        OutputStream wrap(OutputStream sink) throws IOException;
+    }
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final InputStream source;
+    private final Sink sink = new Sink();
+    private final OutputStream compressor;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int position;
+    private boolean finished;
+
+    CompressingInputStream(InputStream source, CompressorFactory factory) throws IOException {
+        this.source = source;
+        this.compressor = factory.wrap(sink);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        // The compressor may buffer a whole block before emitting anything
+        while (position >= sink.size()) {
+            if (finished) {
+                return -1;
+            }
+            sink.reset();
+            position = 0;
+            int read = source.read(chunk);
+            if (read < 0) {
+                compressor.close(); // Flushes the last block and the frame footer
+                finished = true;
+            } else {
+                compressor.write(chunk, 0, read);
+            }
+        }
+        int count = Math.min(len, sink.size() - position);
+        System.arraycopy(sink.buffer(), position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return sink.size() - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!finished) {
+                finished = true;
+                compressor.close(); // Releases native state
+            }
+        } finally {
+            source.close();
+        }
+    }
+
+    private static final class Sink extends ByteArrayOutputStream {
+
+        Sink() {
+            super(CHUNK_SIZE);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.ingestiongateway.util;
+
+import com.github.luben.zstd.RecyclingBufferPool;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Codecs for compressed temp bucket objects. Both write self-describing
+ * frames, so an object can be decompressed by any standard zstd or lz4 tool.
+ */
+public enum CompressionCodec {
+
+    /** Best ratio on structured text (CSV, JSON). */
+    ZSTD("zstd", ".zst"),
+
+    /** Several times faster than zstd at a lower ratio. */
+    LZ4("lz4", ".lz4");
+
+    /** Default zstd level: most of the ratio of higher levels at a fraction of the CPU. */
+    public static final int DEFAULT_ZSTD_LEVEL = 3;
+
+    private final String id;
+    private final String extension;
+
+    CompressionCodec(String id, String extension) {
+        this.id = id;
+        this.extension = extension;
+    }
+
+    /**
+     * Name recorded in object metadata and transfer requests.
+     */
+    public String id() {
+        return id;
+    }
+
+    /**
+     * Appended to the object name, so compressed and plain copies of the same
+     * content never share a content-addressed name.
+     */
+    public String extension() {
+        return extension;
+    }
+
+    public static CompressionCodec of(String id) {
+        for (CompressionCodec codec : values()) {
+            if (codec.id.equalsIgnoreCase(id)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown compression codec: " + id);
+    }
+
+    /**
+     * Wraps a sink so bytes written to it are compressed. Closing the result
+     * finishes the frame.
+     *
+     * @param level zstd level, ignored by lz4
+     */
+    public OutputStream compressor(OutputStream out, int level) throws IOException {
+        return switch (this) {
+            case ZSTD -> new ZstdOutputStream(out, RecyclingBufferPool.INSTANCE, level);
+            // 64 KB blocks, the size of the chunks CompressingInputStream feeds it
+            case LZ4 -> new LZ4FrameOutputStream(out, LZ4FrameOutputStream.BLOCKSIZE.SIZE_64KB);
+        };
+    }
+
+    /**
+     * Reads the source compressed: each read pulls and compresses the next
+     * chunk, so memory stays bounded whatever the size.
+     */
+    public InputStream compress(InputStream source, int level) throws IOException {
+        return new CompressingInputStream(source, out -> compressor(out, level));
+    }
+
+    public InputStream decompress(InputStream source) throws IOException {
+        return switch (this) {
+            case ZSTD -> new ZstdInputStream(source, RecyclingBufferPool.INSTANCE);
+            case LZ4 -> new LZ4FrameInputStream(source);
+        };
+    }
+}
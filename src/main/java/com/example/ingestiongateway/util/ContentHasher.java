@@ -0,0 +1,195 @@
+package com.example.ingestiongateway.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * SHA-256 hashing for the content-addressed tmp bucket.
+ * <p>
+ * Digests and read buffers (one heap, one direct) are pooled, so hashing a
+ * file only allocates the resulting hex string. Local files are read through
+ * a {@link FileChannel} into the direct buffer, or memory-mapped when large.
+ * A pool is used rather than thread-locals so that short-lived threads do
+ * not each pin their own 128 KB of buffers.
+ */
+public final class ContentHasher implements AutoCloseable {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Files at or above this size are memory-mapped instead of read. */
+    static final long MMAP_THRESHOLD = 4L * 1024 * 1024;
+
+    /** A single mapping is limited to 2 GB, so larger files are mapped in windows. */
+    static final long MMAP_WINDOW = 256L * 1024 * 1024;
+
+    private static final int DIGEST_LENGTH = 32;
+
+    private static final int POOL_SIZE = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final BlockingQueue<ContentHasher> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final MessageDigest digest;
+    private final byte[] heapBuffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer directBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final byte[] result = new byte[DIGEST_LENGTH];
+    private final byte[] hex = new byte[DIGEST_LENGTH * 2];
+
+    private ContentHasher() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Borrows a reset hasher from the pool. Close it to return it; it must not
+     * be used afterwards.
+     */
+    public static ContentHasher acquire() {
+        ContentHasher hasher = POOL.poll();
+        return hasher != null ? hasher : new ContentHasher();
+    }
+
+    public static String sha256Hex(InputStream in) throws IOException {
+        try (ContentHasher hasher = acquire()) {
+            hasher.update(in);
+            return hasher.hexDigest();
+        }
+    }
+
+    /**
+     * Hashes the remaining bytes of the buffer without moving its position.
+     */
+    public static String sha256Hex(ByteBuffer content) {
+        try (ContentHasher hasher = acquire()) {
+            hasher.update(content.duplicate());
+            return hasher.hexDigest();
+        }
+    }
+
+    public static String sha256Hex(Path file) throws IOException {
+        return sha256Hex(file, MMAP_WINDOW);
+    }
+
+    static String sha256Hex(Path file, long mmapWindow) throws IOException {
+        try (ContentHasher hasher = acquire();
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MMAP_THRESHOLD) {
+                for (long position = 0; position < size; position += mmapWindow) {
+                    long length = Math.min(mmapWindow, size - position);
+                    hasher.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                }
+            } else {
+                ByteBuffer buffer = hasher.directBuffer;
+                buffer.clear();
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    hasher.digest.update(buffer);
+                    buffer.clear();
+                }
+            }
+            return hasher.hexDigest();
+        }
+    }
+
+    public void update(byte[] bytes, int offset, int length) {
+        digest.update(bytes, offset, length);
+    }
+
+    /**
+     * Consumes the remaining bytes of the buffer.
+     */
+    public void update(ByteBuffer bytes) {
+        digest.update(bytes);
+    }
+
+    public void update(InputStream in) throws IOException {
+        int read;
+        while ((read = in.read(heapBuffer)) != -1) {
+            digest.update(heapBuffer, 0, read);
+        }
+    }
+
+    /**
+     * Hashes the stream while copying it into {@code target}.
+     *
+     * @return the number of bytes copied
+     * @throws java.nio.BufferOverflowException if the stream is larger than
+     *                                          the space left in the target
+     */
+    public long update(InputStream in, ByteBuffer target) throws IOException {
+        long total = 0;
+        int read;
+        while ((read = in.read(heapBuffer)) != -1) {
+            digest.update(heapBuffer, 0, read);
+            target.put(heapBuffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Hashes the stream while copying it into {@code target}.
+     *
+     * @return the number of bytes copied
+     */
+    public long update(InputStream in, OutputStream target) throws IOException {
+        long total = 0;
+        int read;
+        while ((read = in.read(heapBuffer)) != -1) {
+            digest.update(heapBuffer, 0, read);
+            target.write(heapBuffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Completes the hash and resets the digest for reuse.
+     */
+    public String hexDigest() {
+        try {
+            digest.digest(result, 0, DIGEST_LENGTH);
+        } catch (DigestException e) {
+            throw new IllegalStateException("Failed to complete SHA-256 digest", e);
+        }
+        return toHex(result, hex);
+    }
+
+    @Override
+    public void close() {
+        digest.reset();
+        POOL.offer(this);
+    }
+
+    /**
+     * Lower-case hex encoding using a lookup table.
+     */
+    public static String toHex(byte[] bytes) {
+        return toHex(bytes, new byte[bytes.length * 2]);
+    }
+
+    private static String toHex(byte[] bytes, byte[] out) {
+        for (int i = 0; i < bytes.length; i++) {
+            int v = bytes[i] & 0xff;
+            out[i * 2] = HEX[v >>> 4];
+            out[i * 2 + 1] = HEX[v & 0x0f];
+        }
+        return new String(out, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.ingestiongateway.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded fan-out of blocking I/O tasks (uploads, copies) onto an executor.
+ * <p>
+ * At most {@code parallelism} tasks of one call are in flight at a time,
+ * whatever the executor, so a thread-per-task (virtual thread) executor does
+ * not turn a 10,000-file batch into 10,000 concurrent MinIO requests.
+ */
+public final class ParallelTasks {
+
+    @FunctionalInterface
+    public interface Task<T, R> {
+        R apply(T item) throws Exception;
+    }
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Applies {@code task} to every item and returns the results in item
+     * order. Waits for all submitted tasks before returning; if any failed,
+     * stops submitting new ones and rethrows the first failure (runtime
+     * exceptions unchanged, checked ones wrapped).
+     */
+    public static <T, R> List<R> map(Executor executor, List<T> items, int parallelism, Task<T, R> task) {
+        if (items.size() <= 1 || parallelism <= 1) {
+            List<R> results = new ArrayList<>(items.size());
+            for (T item : items) {
+                results.add(call(task, item));
+            }
+            return results;
+        }
+
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CompletableFuture<R>> futures = new ArrayList<>(items.size());
+        try {
+            for (T item : items) {
+                permits.acquire();
+                if (failed.get()) {
+                    permits.release();
+                    break;
+                }
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return call(task, item);
+                    } catch (RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    } finally {
+                        permits.release();
+                    }
+                }, executor));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while submitting parallel tasks", e);
+        }
+
+        RuntimeException failure = null;
+        List<R> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<R> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException re ? re : e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    private static <T, R> R call(Task<T, R> task, T item) {
+        try {
+            return task.apply(item);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.ingestiongateway.util;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to Java 21 virtual threads from code compiled for Java 17.
+ * <p>
+ * The APIs are looked up reflectively, so on older runtimes these methods
+ * simply report that virtual threads are unavailable.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    /**
+     * @return a factory for virtual threads named {@code prefix + n}, or empty
+     *         before Java 21
+     */
+    public static Optional<ThreadFactory> factory(String prefix) {
+        if (!isSupported()) {
+            return Optional.empty();
+        }
+        try {
+            Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return Optional.of((ThreadFactory) ofVirtual.getMethod("factory").invoke(builder));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return an executor starting one new virtual thread per task, or empty
+     *         before Java 21
+     */
+    public static Optional<ExecutorService> newThreadPerTaskExecutor(String prefix) {
+        return factory(prefix).map(threadFactory -> {
+            try {
+                return (ExecutorService) Executors.class
+                        .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                        .invoke(null, threadFactory);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Virtual thread executor not available", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.ingestiongateway.worker;
+
+import com.example.ingestiongateway.model.ArchivedBatchDocument;
+import com.example.ingestiongateway.model.BatchDocument;
+import com.example.ingestiongateway.service.ServerIdentityService;
+import com.mongodb.client.model.CreateCollectionOptions;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves DONE batches out of the hot {@code batches} collection into
+ * {@code batches_archive}.
+ * <p>
+ * The archive is created with zstd block compression and holds a slimmed
+ * {@link ArchivedBatchDocument}, so the hot collection and its indexes only
+ * carry PENDING/READY batches (plus DONE ones younger than
+ * {@code min-age-minutes}). Archived batches stay readable by id and expire on
+ * the same 7-day TTL.
+ * <p>
+ * Each chunk is upserted into the archive before it is removed from the hot
+ * collection, so a crash in between leaves a batch in both places, never in
+ * neither; the next run replaces the archive copy and finishes the move. Like
+ * the tmp bucket GC, only the instance holding server ID 0 runs it, on its own
+ * thread.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BatchArchiver {
+
+    private final MongoTemplate mongoTemplate;
+    private final ServerIdentityService serverIdentityService;
+
+    @Value("${app.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.archive.min-age-minutes:10}")
+    private long minAgeMinutes;
+
+    @Value("${app.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.archive.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    private final ExecutorService archiver = Executors
+            .newSingleThreadExecutor(new CustomizableThreadFactory("batch-archiver-"));
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        try {
+            if (!mongoTemplate.collectionExists(ArchivedBatchDocument.class)) {
+                // Compression is fixed when the collection is created
+                mongoTemplate.getDb().createCollection(ArchivedBatchDocument.COLLECTION_NAME,
+                        new CreateCollectionOptions().storageEngineOptions(
+                                new Document("wiredTiger", new Document("configString", "block_compressor=zstd"))));
+                log.info("Created {} with zstd block compression", ArchivedBatchDocument.COLLECTION_NAME);
+            }
+            mongoTemplate.indexOps(ArchivedBatchDocument.class)
+                    .ensureIndex(new Index().on("createdAt", Sort.Direction.ASC)
+                            .expire(Duration.ofDays(7))
+                            .named("ttl_index"));
+
+            // Backs the DONE scan below and the READY recovery query
+            mongoTemplate.indexOps(BatchDocument.class)
+                    .ensureIndex(new Index().on("status", Sort.Direction.ASC)
+                            .on("ingestionTimestamp", Sort.Direction.ASC)
+                            .named("status_ingestion_timestamp_index"));
+        } catch (Exception e) {
+            log.error("Failed to prepare batch archive collection", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        archiver.shutdownNow();
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 */5 * * * *}")
+    public void scheduleArchive() {
+        if (!enabled || !Integer.valueOf(0).equals(serverIdentityService.getServerId())) {
+            return;
+        }
+        if (running.compareAndSet(false, true)) {
+            archiver.execute(() -> {
+                try {
+                    archiveDoneBatches();
+                } catch (Exception e) {
+                    log.error("Batch archive run failed", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Archives DONE batches older than {@code min-age-minutes}, one chunk of
+     * {@code batch-size} at a time.
+     *
+     * @return the number of batches moved
+     */
+    public int archiveDoneBatches() {
+        long threshold = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(minAgeMinutes);
+        int moved = 0;
+        for (int i = 0; i < maxBatchesPerRun && !Thread.currentThread().isInterrupted(); i++) {
+            Query query = Query.query(Criteria.where("status").is("DONE").and("ingestionTimestamp").lt(threshold))
+                    .limit(batchSize);
+            List<BatchDocument> done = mongoTemplate.find(query, BatchDocument.class);
+            if (done.isEmpty()) {
+                break;
+            }
+            moved += archive(done);
+            if (done.size() < batchSize) {
+                break;
+            }
+        }
+        if (moved > 0) {
+            log.info("Archived {} DONE batches", moved);
+        }
+        return moved;
+    }
+
+    private int archive(List<BatchDocument> batches) {
+        Date archivedAt = new Date();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ArchivedBatchDocument.class);
+        for (BatchDocument batch : batches) {
+            bulk.replaceOne(Query.query(Criteria.where("_id").is(batch.getId())),
+                    ArchivedBatchDocument.from(batch, archivedAt), FindAndReplaceOptions.options().upsert());
+        }
+        bulk.execute();
+
+        List<String> ids = batches.stream().map(BatchDocument::getId).toList();
+        // Status guard: never drop a batch that was re-ingested into another state meanwhile
+        return (int) mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids).and("status").is("DONE")),
+                BatchDocument.class).getDeletedCount();
+    }
+}
@@ -1,8 +1,16 @@
 package com.example.ingestiongateway.worker;
 
+import com.example.ingestiongateway.config.LaneProperties;
+import com.example.ingestiongateway.config.TenantProperties;
+import com.example.ingestiongateway.model.ArchivedBatchDocument;
 import com.example.ingestiongateway.model.BatchDocument;
-import com.example.ingestiongateway.model.FileTransferRequest;
+import com.example.ingestiongateway.service.FaultInjector;
 import com.example.ingestiongateway.service.MinioService;
+import com.example.ingestiongateway.util.ParallelTasks;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,10 +19,19 @@ import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Component
 @RequiredArgsConstructor
@@ -24,6 +41,11 @@ public class BatchProcessor {
     private final MongoTemplate mongoTemplate;
     private final KafkaTemplate<String, Object> kafkaTemplate;
     private final MinioService minioService;
+    private final ExecutorService transferExecutor;
+    private final FaultInjector faultInjector;
+    private final TenantProperties tenantProperties;
+    private final LaneProperties laneProperties;
+    private final MeterRegistry meterRegistry;
 
     @Value("${app.worker.topics.alpha}")
     private String topicAlpha;
@@ -34,25 +56,68 @@ public class BatchProcessor {
     @Value("${app.worker.topics.ingestion:batch.ingestion.events}")
     private String ingestionTopic;
 
+    // Per-file overhead (requests, metadata) expressed in bytes, so many tiny files still cost something
+    @Value("${app.worker.fair.per-file-cost:256KB}")
+    private DataSize perFileCost;
+
+    // How long a listener waits for room in a full lane, and then how long the record is paused before redelivery
+    @Value("${app.worker.full-queue-backoff:1s}")
+    private Duration fullQueueBackoff;
+
+    private final Map<String, FairBatchScheduler<BatchDocument>> schedulers = new LinkedHashMap<>();
+    private final Map<String, Gauge> queueDepthGauges = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void startSchedulers() {
+        for (String lane : List.of(LaneProperties.SMALL, LaneProperties.LARGE)) {
+            LaneProperties.Lane settings = laneProperties.settings(lane);
+            FairBatchScheduler<BatchDocument> scheduler = new FairBatchScheduler<>(lane, settings.getQueueCapacity(),
+                    tenantProperties::weightOf);
+            scheduler.start(settings.getThreads(), new CustomizableThreadFactory("batch-worker-" + lane + "-"),
+                    batch -> {
+                        try {
+                            processBatch(batch);
+                        } finally {
+                            removeDrainedDepthGauge(lane, tenantOf(batch));
+                        }
+                    });
+            Gauge.builder("ingestion.worker.queue.size", scheduler, FairBatchScheduler::size)
+                    .tag("lane", lane)
+                    .register(meterRegistry);
+            schedulers.put(lane, scheduler);
+        }
+    }
+
+    @PreDestroy
+    public void stopSchedulers() {
+        schedulers.values().forEach(FairBatchScheduler::shutdown);
+    }
+
     /**
      * Recovery task: Finds batches that are stuck in READY state (e.g., missed
      * event).
-     * Re-publishes them to the Kafka topic.
+     * Re-publishes them to their lane's Kafka topic.
      */
     @Scheduled(cron = "${app.worker.cron}")
     public void recoverStuckBatches() {
-        // Look for batches created more than 5 minutes ago but still READY
+        // Each lane waits its own threshold before treating a READY batch as stuck
         // This prevents race condition with immediate event
-        long threshold = System.currentTimeMillis() - (5 * 60 * 1000);
+        long now = System.currentTimeMillis();
+        long smallThreshold = now - laneProperties.getSmall().getRecoveryThreshold().toMillis();
+        long largeThreshold = now - laneProperties.getLarge().getRecoveryThreshold().toMillis();
 
-        Query query = Query.query(Criteria.where("status").is("READY").and("ingestionTimestamp").lt(threshold));
-        List<BatchDocument> stuckBatches = mongoTemplate.find(query, BatchDocument.class);
+        Query query = Query.query(Criteria.where("status").is("READY").and("ingestionTimestamp")
+                .lt(Math.max(smallThreshold, largeThreshold)));
+        List<BatchDocument> stuckBatches = mongoTemplate.find(query, BatchDocument.class).stream()
+                .filter(batch -> batch.getIngestionTimestamp() < (LaneProperties.LARGE
+                        .equals(laneProperties.laneOf(batch)) ? largeThreshold : smallThreshold))
+                .toList();
 
         if (!stuckBatches.isEmpty()) {
             log.info("Found {} stuck READY batches. Re-publishing events.", stuckBatches.size());
             for (BatchDocument batch : stuckBatches) {
                 try {
-                    kafkaTemplate.send(ingestionTopic, batch);
+                    kafkaTemplate.send(LaneProperties.topic(ingestionTopic, laneProperties.laneOf(batch)), batch);
                 } catch (Exception e) {
                     log.error("Failed to re-publish batch {}", batch.getId(), e);
                 }
@@ -60,18 +125,93 @@ public class BatchProcessor {
         }
     }
 
+    @KafkaListener(topics = "${app.worker.topics.ingestion}.small", groupId = "ingestion-worker-group",
+            concurrency = "${app.lanes.small.listener-concurrency:2}")
+    public void processSmallBatchEvent(BatchDocument batch, Acknowledgment ack) {
+        enqueue(LaneProperties.SMALL, batch, ack);
+    }
+
+    @KafkaListener(topics = "${app.worker.topics.ingestion}.large", groupId = "ingestion-worker-group",
+            concurrency = "${app.lanes.large.listener-concurrency:1}")
+    public void processLargeBatchEvent(BatchDocument batch, Acknowledgment ack) {
+        enqueue(LaneProperties.LARGE, batch, ack);
+    }
+
+    /**
+     * Drains events published to the pre-lane topic (e.g. during a rolling
+     * upgrade) into the lane they belong to.
+     */
     @KafkaListener(topics = "${app.worker.topics.ingestion}", groupId = "ingestion-worker-group")
-    public void processBatchEvent(BatchDocument batch) {
+    public void processBatchEvent(BatchDocument batch, Acknowledgment ack) {
+        enqueue(laneProperties.laneOf(batch), batch, ack);
+    }
+
+    /**
+     * Hands the batch to its lane's fair scheduler and returns, so the next
+     * record can be read while earlier batches are still copying. The offset
+     * is committed once queued: a batch queued when the process dies stays
+     * READY in MongoDB and is re-published by {@link #recoverStuckBatches()}.
+     * <p>
+     * A lane that stays full for {@code fullQueueBackoff} gets the record
+     * back with {@code nack}: the container seeks to it and pauses the
+     * partitions for the same time while it keeps polling, so the consumer
+     * never blocks past {@code max.poll.interval.ms} and stays in its group.
+     */
+    private void enqueue(String lane, BatchDocument batch, Acknowledgment ack) {
+        FairBatchScheduler<BatchDocument> scheduler = schedulers.get(lane);
+        String tenant = tenantOf(batch);
+        // Registered before submitting, so the worker finishing this batch always finds it to remove
+        queueDepthGauges.computeIfAbsent(lane + "/" + tenant, key -> Gauge
+                .builder("ingestion.worker.queue.depth", scheduler, s -> s.depth(tenant))
+                .tag("lane", lane)
+                .tag("tenant", tenant)
+                .register(meterRegistry));
+        FairBatchScheduler.Submission submission;
         try {
-            log.info("Processing event for Batch ID: {}", batch.getId());
+            submission = scheduler.submit(tenant, batch.getId(), costOf(batch), batch,
+                    fullQueueBackoff.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while queueing Batch ID: {} - Worker will recover.", batch.getId());
+            removeDrainedDepthGauge(lane, tenant);
+            return;
+        }
+        switch (submission) {
+            case QUEUED -> ack.acknowledge();
+            case DUPLICATE -> {
+                log.info("Batch ID: {} is already queued. Skipping.", batch.getId());
+                ack.acknowledge();
+            }
+            case FULL -> {
+                log.info("Lane {} is full, redelivering Batch ID: {} in {}", lane, batch.getId(), fullQueueBackoff);
+                removeDrainedDepthGauge(lane, tenant);
+                ack.nack(fullQueueBackoff);
+            }
+        }
+    }
 
-            // DELAY FOR DEMO PURPOSES
-            try {
-                log.info("Sleeping for 5 seconds to show READY state...");
-                Thread.sleep(5000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    /**
+     * Drops a tenant's queue depth gauge once it has nothing queued in the
+     * lane, so the registry only holds series for tenants with work waiting
+     * rather than every tenant ever seen. It is registered again on the
+     * tenant's next batch.
+     */
+    private void removeDrainedDepthGauge(String lane, String tenant) {
+        queueDepthGauges.computeIfPresent(lane + "/" + tenant, (key, gauge) -> {
+            if (schedulers.get(lane).depth(tenant) > 0) {
+                return gauge;
             }
+            meterRegistry.remove(gauge);
+            return null;
+        });
+    }
+
+    public void processBatch(BatchDocument batch) {
+        try {
+            log.info("Processing event for Batch ID: {}", batch.getId());
+
+            // Demo profile only: delay to show READY state
+            faultInjector.inject(FaultInjector.WORKER_READY);
 
             // 1. Idempotency Check
             BatchDocument currentDbState = mongoTemplate.findById(batch.getId(), BatchDocument.class);
@@ -79,12 +219,21 @@ public class BatchProcessor {
                 log.info("Batch ID: {} is already DONE. Skipping.", batch.getId());
                 return;
             }
+            if (currentDbState == null && mongoTemplate.exists(
+                    Query.query(Criteria.where("_id").is(batch.getId())), ArchivedBatchDocument.class)) {
+                // Redelivered after BatchArchiver moved it out of the hot collection
+                log.info("Batch ID: {} is already archived. Skipping.", batch.getId());
+                return;
+            }
 
             // 2. Perform File Copy (Tmp -> Prod)
             if (batch.getTransferRequests() != null) {
-                for (FileTransferRequest req : batch.getTransferRequests()) {
+                int copyParallelism = laneProperties.settings(laneProperties.laneOf(batch)).getCopyParallelism();
+                ParallelTasks.map(transferExecutor, batch.getTransferRequests(), copyParallelism, req -> {
+                    faultInjector.inject(FaultInjector.WORKER_COPY);
                     minioService.copyToProd(req);
-                }
+                    return req;
+                });
             }
 
             // 3. Publish Metadata to Downstream Topics
@@ -114,4 +263,21 @@ public class BatchProcessor {
             }
         }
     }
+
+    private static String tenantOf(BatchDocument batch) {
+        return batch.getUserInput() != null && batch.getUserInput().userName() != null
+                ? batch.getUserInput().userName()
+                : "";
+    }
+
+    private long costOf(BatchDocument batch) {
+        long bytes = 0;
+        if (batch.getKafkaMetadataAlpha() != null) {
+            for (com.example.ingestiongateway.model.FileMetadata meta : batch.getKafkaMetadataAlpha()) {
+                bytes += meta.size();
+            }
+        }
+        int files = batch.getTransferRequests() != null ? batch.getTransferRequests().size() : 0;
+        return bytes + files * perFileCost.toBytes();
+    }
 }
@@ -0,0 +1,239 @@
+package com.example.ingestiongateway.worker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Weighted fair queue of work items across tenants, drained by a fixed set of
+ * worker threads.
+ * <p>
+ * Each tenant has its own FIFO queue. An item is tagged on arrival with a
+ * virtual finish time, {@code max(now, tenant's last finish) + cost / weight},
+ * and workers always take the queued head with the smallest tag. A tenant
+ * that enqueues thousands of large batches thus only pushes back its own
+ * later batches, while a small batch from another tenant is tagged just past
+ * the current virtual time and runs next.
+ * <p>
+ * Items are deduplicated by key while queued or running, so a batch
+ * re-published by recovery is not processed twice concurrently. Not a Spring
+ * bean: each lane owns one.
+ */
+@Slf4j
+public class FairBatchScheduler<T> {
+
+    private final String name;
+    private final int capacity;
+    private final ToIntFunction<String> weights;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private final Map<String, TenantQueue<T>> tenants = new HashMap<>();
+    private final PriorityQueue<Entry<T>> heads = new PriorityQueue<>(
+            Comparator.comparingDouble((Entry<T> entry) -> entry.finish).thenComparingLong(entry -> entry.seq));
+    private final Set<String> keys = new HashSet<>();
+    private final List<Thread> workers = new ArrayList<>();
+
+    private double virtualTime;
+    private long seq;
+    private int size;
+    private volatile boolean running;
+
+    public FairBatchScheduler(String name, int capacity, ToIntFunction<String> weights) {
+        this.name = name;
+        this.capacity = capacity;
+        this.weights = weights;
+    }
+
+    /**
+     * Starts {@code threads} workers that pass each item to {@code handler}.
+     * Handler exceptions are logged and the worker moves on.
+     */
+    public void start(int threads, ThreadFactory threadFactory, Consumer<T> handler) {
+        running = true;
+        for (int i = 0; i < threads; i++) {
+            Thread worker = threadFactory.newThread(() -> drain(handler));
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Queues an item, waiting up to {@code timeout} while the scheduler is
+     * full. The caller is a Kafka listener, which has to get back to polling
+     * within {@code max.poll.interval.ms}; on {@link Submission#FULL} it hands
+     * the record back to be redelivered instead of waiting any longer.
+     */
+    public Submission submit(String tenant, String key, long cost, T item, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long remainingNanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size >= capacity && !keys.contains(key)) {
+                if (remainingNanos <= 0) {
+                    return Submission.FULL;
+                }
+                remainingNanos = notFull.awaitNanos(remainingNanos);
+            }
+            if (keys.contains(key)) {
+                return Submission.DUPLICATE;
+            }
+            TenantQueue<T> queue = tenants.computeIfAbsent(tenant, TenantQueue::new);
+            double start = Math.max(virtualTime, queue.lastFinish);
+            Entry<T> entry = new Entry<>(queue, key, item, start,
+                    start + (double) Math.max(1, cost) / Math.max(1, weights.applyAsInt(tenant)), seq++);
+            queue.lastFinish = entry.finish;
+            queue.entries.addLast(entry);
+            if (queue.entries.size() == 1) {
+                heads.add(entry);
+            }
+            keys.add(key);
+            size++;
+            notEmpty.signal();
+            return Submission.QUEUED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the item with the smallest finish tag, waiting up to
+     * {@code timeout} for one. The caller must {@link #complete} its key.
+     *
+     * @return the item, or null on timeout
+     */
+    T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Entry<T> entry = next(timeout, unit);
+        return entry != null ? entry.item : null;
+    }
+
+    private Entry<T> next(long timeout, TimeUnit unit) throws InterruptedException {
+        long remainingNanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (heads.isEmpty()) {
+                if (remainingNanos <= 0) {
+                    return null;
+                }
+                remainingNanos = notEmpty.awaitNanos(remainingNanos);
+            }
+            Entry<T> entry = heads.poll();
+            TenantQueue<T> queue = entry.queue;
+            queue.entries.removeFirst();
+            if (!queue.entries.isEmpty()) {
+                heads.add(queue.entries.peekFirst());
+            } else {
+                tenants.remove(queue.tenant);
+            }
+            virtualTime = Math.max(virtualTime, entry.start);
+            size--;
+            notFull.signal();
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks an item taken by {@link #poll} as finished, so its key can be
+     * submitted again.
+     */
+    void complete(String key) {
+        lock.lock();
+        try {
+            keys.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queued (not yet running) items of one tenant.
+     */
+    public int depth(String tenant) {
+        lock.lock();
+        try {
+            TenantQueue<T> queue = tenants.get(tenant);
+            return queue != null ? queue.entries.size() : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void drain(Consumer<T> handler) {
+        while (running) {
+            Entry<T> entry;
+            try {
+                entry = next(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (entry == null) {
+                continue;
+            }
+            try {
+                handler.accept(entry.item);
+            } catch (Exception e) {
+                log.error("Scheduler {} failed to handle {}", name, entry.key, e);
+            } finally {
+                complete(entry.key);
+            }
+        }
+    }
+
+    public enum Submission {
+        QUEUED,
+        /** An item with the same key is already queued or running. */
+        DUPLICATE,
+        /** Still full when the timeout ran out; nothing was queued. */
+        FULL
+    }
+
+    private static final class TenantQueue<T> {
+        final String tenant;
+        final ArrayDeque<Entry<T>> entries = new ArrayDeque<>();
+        double lastFinish;
+
+        TenantQueue(String tenant) {
+            this.tenant = tenant;
+        }
+    }
+
+    private record Entry<T>(TenantQueue<T> queue, String key, T item, double start, double finish, long seq) {
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.ingestiongateway.worker;
+
+import com.example.ingestiongateway.model.BatchDocument;
+import com.example.ingestiongateway.model.FileTransferRequest;
+import com.example.ingestiongateway.service.MinioService;
+import com.example.ingestiongateway.service.ServerIdentityService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Garbage collector for the content-addressed tmp bucket.
+ * <p>
+ * An object {@code yy/MM/dd/<hash>} is kept while any batch still in MongoDB
+ * references it through a {@link FileTransferRequest#getTempPath()}; once the
+ * TTL index has expired every batch that referenced it, it is deleted. Pack
+ * objects ({@code yy/MM/dd/packs/<id>}) are covered the same way: a packed
+ * file's transfer request carries the pack as its temp path, so a pack lives
+ * until the last batch holding any of its files expires.
+ * <p>
+ * The bucket is swept one day prefix at a time, cycling from
+ * {@code lookback-days} ago up to {@code grace-days} ago (recent days are
+ * skipped because uploads in flight are not referenced until the batch is
+ * READY). Only the instance holding server ID 0 collects, on its own thread,
+ * and deletes are paced to {@code max-deletes-per-second} so the sweep never
+ * competes with ingest traffic.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TmpBucketCollector {
+
+    private final MongoTemplate mongoTemplate;
+    private final MinioService minioService;
+    private final ServerIdentityService serverIdentityService;
+
+    @Value("${app.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.gc.grace-days:1}")
+    private int graceDays;
+
+    @Value("${app.gc.lookback-days:60}")
+    private int lookbackDays;
+
+    @Value("${app.gc.prefixes-per-run:1}")
+    private int prefixesPerRun;
+
+    @Value("${app.gc.delete-batch-size:500}")
+    private int deleteBatchSize;
+
+    @Value("${app.gc.max-deletes-per-second:200}")
+    private int maxDeletesPerSecond;
+
+    private final ExecutorService sweeper = Executors
+            .newSingleThreadExecutor(new CustomizableThreadFactory("tmp-gc-"));
+    private final AtomicBoolean running = new AtomicBoolean();
+    private LocalDate cursor;
+
+    @PostConstruct
+    public void ensureIndex() {
+        try {
+            // Backs the anchored prefix regex in referencedPaths()
+            mongoTemplate.indexOps(BatchDocument.class)
+                    .ensureIndex(new Index().on("transferRequests.tempPath", Sort.Direction.ASC)
+                            .named("transfer_temp_path_index"));
+        } catch (Exception e) {
+            log.error("Failed to ensure tempPath index for tmp bucket GC", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    @Scheduled(cron = "${app.gc.cron:0 */10 * * * *}")
+    public void scheduleSweep() {
+        if (!enabled || !Integer.valueOf(0).equals(serverIdentityService.getServerId())) {
+            return;
+        }
+        // Keep the shared scheduler thread free; skip if the last sweep is still running
+        if (running.compareAndSet(false, true)) {
+            sweeper.execute(() -> {
+                try {
+                    sweep();
+                } catch (Exception e) {
+                    log.error("Tmp bucket GC sweep failed", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+    }
+
+    void sweep() {
+        LocalDate today = LocalDate.now();
+        LocalDate oldest = today.minusDays(lookbackDays);
+        LocalDate newest = today.minusDays(graceDays + 1L);
+
+        for (int i = 0; i < prefixesPerRun && !Thread.currentThread().isInterrupted(); i++) {
+            if (cursor == null || cursor.isBefore(oldest) || cursor.isAfter(newest)) {
+                cursor = oldest;
+            }
+            collect(MinioService.tmpDatePrefix(cursor));
+            cursor = cursor.plusDays(1);
+        }
+    }
+
+    /**
+     * Deletes the unreferenced objects under one day prefix.
+     *
+     * @return the number of objects deleted
+     */
+    public int collect(String datePrefix) {
+        Set<String> referenced = referencedPaths(datePrefix);
+
+        List<String> garbage = new ArrayList<>(deleteBatchSize);
+        int[] scanned = { 0 };
+        int[] deleted = { 0 };
+        minioService.forEachTmpObject(datePrefix, objectName -> {
+            scanned[0]++;
+            if (!referenced.contains(objectName)) {
+                garbage.add(objectName);
+                if (garbage.size() >= deleteBatchSize) {
+                    deleted[0] += deleteThrottled(garbage);
+                }
+            }
+        });
+        if (!garbage.isEmpty()) {
+            deleted[0] += deleteThrottled(garbage);
+        }
+
+        if (scanned[0] > 0) {
+            log.info("Tmp bucket GC {}: scanned {}, referenced {}, deleted {}", datePrefix, scanned[0],
+                    referenced.size(), deleted[0]);
+        }
+        return deleted[0];
+    }
+
+    private Set<String> referencedPaths(String datePrefix) {
+        // Date prefixes hold no regex metacharacters, and a plain anchored prefix can use the index
+        Query query = Query.query(Criteria.where("transferRequests.tempPath").regex("^" + datePrefix));
+        query.fields().include("transferRequests.tempPath");
+
+        Set<String> referenced = new HashSet<>();
+        for (BatchDocument batch : mongoTemplate.find(query, BatchDocument.class)) {
+            if (batch.getTransferRequests() != null) {
+                for (FileTransferRequest request : batch.getTransferRequests()) {
+                    referenced.add(request.getTempPath());
+                }
+            }
+        }
+        return referenced;
+    }
+
+    private int deleteThrottled(List<String> garbage) {
+        long started = System.currentTimeMillis();
+        int deleted = minioService.removeTmpObjects(List.copyOf(garbage));
+        long budgetMs = garbage.size() * 1000L / Math.max(1, maxDeletesPerSecond);
+        garbage.clear();
+
+        long remainingMs = budgetMs - (System.currentTimeMillis() - started);
+        if (remainingMs > 0) {
+            try {
+                Thread.sleep(remainingMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.ingestiongateway.worker;
+
+import com.example.ingestiongateway.service.ChunkedUploadService;
+import com.example.ingestiongateway.service.ServerIdentityService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Aborts resumable upload sessions that went idle, so MinIO releases their
+ * parts before the session documents expire. Runs on server ID 0 only, on its
+ * own thread.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionSweeper {
+
+    private final ChunkedUploadService chunkedUploadService;
+    private final ServerIdentityService serverIdentityService;
+
+    @Value("${app.upload.sweep-limit:100}")
+    private int sweepLimit;
+
+    private final ExecutorService sweeper = Executors
+            .newSingleThreadExecutor(new CustomizableThreadFactory("upload-sweeper-"));
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    @Scheduled(cron = "${app.upload.sweep-cron:0 * * * * *}")
+    public void scheduleSweep() {
+        if (!Integer.valueOf(0).equals(serverIdentityService.getServerId())) {
+            return;
+        }
+        if (running.compareAndSet(false, true)) {
+            sweeper.execute(() -> {
+                try {
+                    int aborted = chunkedUploadService.abortExpired(sweepLimit);
+                    if (aborted > 0) {
+                        log.info("Aborted {} expired upload sessions", aborted);
+                    }
+                } catch (Exception e) {
+                    log.error("Upload session sweep failed", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package com.example.ingestiongateway;
 
+import com.example.ingestiongateway.config.CompressionProperties;
+import com.example.ingestiongateway.config.LaneProperties;
 import com.example.ingestiongateway.model.BatchDocument;
+import com.example.ingestiongateway.model.FileMetadata;
 import com.example.ingestiongateway.model.FileTransferRequest;
+import com.example.ingestiongateway.service.FaultInjector;
+import com.example.ingestiongateway.service.IngestBufferManager;
 import com.example.ingestiongateway.service.IngestionService;
 import com.example.ingestiongateway.service.MinioService;
+import com.example.ingestiongateway.service.ServerIdentityService;
+import com.example.ingestiongateway.service.SmallFilePacker;
+import com.example.ingestiongateway.service.TenantAdmissionControl;
 import com.example.ingestiongateway.worker.BatchProcessor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +19,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Query;
@@ -20,7 +29,9 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -37,6 +48,30 @@ public class RecoverabilityTest {
     @Mock
     private KafkaTemplate<String, Object> kafkaTemplate;
 
+    @Mock
+    private ServerIdentityService serverIdentityService;
+
+    @Mock
+    private IngestBufferManager ingestBufferManager;
+
+    @Mock
+    private FaultInjector faultInjector;
+
+    @Mock
+    private TenantAdmissionControl tenantAdmissionControl;
+
+    @Mock
+    private SmallFilePacker smallFilePacker; // Packing off: accepts() is false
+
+    @Mock
+    private ExecutorService transferExecutor; // Unused: parallelism is set to 1 in setup, so tasks run inline
+
+    @Spy
+    private LaneProperties laneProperties = new LaneProperties();
+
+    @Spy
+    private CompressionProperties compressionProperties = new CompressionProperties();
+
     @InjectMocks
     private IngestionService ingestionService;
 
@@ -47,6 +82,9 @@ public class RecoverabilityTest {
     void setup() {
         // Inject values
         ReflectionTestUtils.setField(ingestionService, "ingestionTopic", "batch.ingestion.events");
+        ReflectionTestUtils.setField(ingestionService, "uploadParallelism", 1);
+        laneProperties.getSmall().setCopyParallelism(1);
+        laneProperties.getLarge().setCopyParallelism(1);
         ReflectionTestUtils.setField(batchProcessor, "ingestionTopic", "batch.ingestion.events");
         ReflectionTestUtils.setField(batchProcessor, "topicAlpha", "topic-alpha");
         ReflectionTestUtils.setField(batchProcessor, "topicBeta", "topic-beta");
@@ -57,23 +95,24 @@ public class RecoverabilityTest {
         // Arrange
         MultipartFile mockFile = mock(MultipartFile.class);
         when(mockFile.getOriginalFilename()).thenReturn("test-filev2.csv");
-        when(minioService.uploadToTmp(any())).thenReturn("tmp/path/hash");
+        when(minioService.uploadToTmp(any(), any())).thenReturn("tmp/path/hash");
 
         // Act - Ingestion
-        String batchId = ingestionService.processUpload(List.of(mockFile), "testUser");
+        String batchId = ingestionService.processUpload(List.of(mockFile), "testUser", false);
 
         // Assert - Kafka Sent
-        verify(kafkaTemplate, times(1)).send(eq("batch.ingestion.events"), any(BatchDocument.class));
+        verify(kafkaTemplate, times(1)).send(eq("batch.ingestion.events.small"), any(BatchDocument.class));
         verify(mongoTemplate, times(2)).save(any(BatchDocument.class)); // 1 PENDING, 1 READY
 
-        // Act - Processing (Simulate Listener)
+        // Act - Processing (Simulate Scheduler Worker)
         BatchDocument batchDoc = BatchDocument.builder()
                 .id(batchId)
                 .status("READY")
                 .transferRequests(List.of(new FileTransferRequest("tmp/path/hash", "uuid", "test-filev2.csv")))
+                .kafkaMetadataAlpha(List.of(new FileMetadata("test-filev2.csv", batchId, 0, List.of())))
                 .build();
 
-        batchProcessor.processBatchEvent(batchDoc);
+        batchProcessor.processBatch(batchDoc);
 
         // Assert - Processing
         verify(minioService, times(1)).copyToProd(any()); // File copied
@@ -81,6 +120,26 @@ public class RecoverabilityTest {
         verify(mongoTemplate, times(1)).save(argThat(b -> "DONE".equals(((BatchDocument) b).getStatus())));
     }
 
+    @Test
+    void testResumedIngestReusesItsBatch() {
+        List<IngestionService.StoredFile> files = List.of(
+                new IngestionService.StoredFile("big.csv", "text/csv", 10, "26/01/02/hash"));
+
+        // A completion that died after its batch went READY: nothing is written or published again
+        when(mongoTemplate.findById("batch-1", BatchDocument.class))
+                .thenReturn(BatchDocument.builder().id("batch-1").status("READY").build());
+        assertEquals("batch-1", ingestionService.ingestStoredFiles("batch-1", files, "testUser"));
+        verify(mongoTemplate, never()).save(any(BatchDocument.class));
+        verifyNoInteractions(kafkaTemplate);
+
+        // One that died while the batch was PENDING: the same batch is completed
+        when(mongoTemplate.findById("batch-2", BatchDocument.class))
+                .thenReturn(BatchDocument.builder().id("batch-2").status("PENDING").build());
+        assertEquals("batch-2", ingestionService.ingestStoredFiles("batch-2", files, "testUser"));
+        verify(mongoTemplate, times(2)).save(argThat((BatchDocument b) -> "batch-2".equals(b.getId())));
+        verify(kafkaTemplate).send(eq("batch.ingestion.events.small"), any(BatchDocument.class));
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     void testKafkaDownRecovery() {
@@ -88,13 +147,13 @@ public class RecoverabilityTest {
         // Arrange
         MultipartFile mockFile = mock(MultipartFile.class);
         when(mockFile.getOriginalFilename()).thenReturn("test-file.csv");
-        when(minioService.uploadToTmp(any())).thenReturn("tmp/path/hash");
+        when(minioService.uploadToTmp(any(), any())).thenReturn("tmp/path/hash");
 
         // Mock Kafka Failure
         when(kafkaTemplate.send(anyString(), any(Object.class))).thenThrow(new RuntimeException("Kafka Down"));
 
         // Act
-        ingestionService.processUpload(List.of(mockFile), "testUser");
+        ingestionService.processUpload(List.of(mockFile), "testUser", false);
 
         // Assert
         // Should not fail the request (exception caught)
@@ -115,6 +174,6 @@ public class RecoverabilityTest {
         batchProcessor.recoverStuckBatches();
 
         // Assert
-        verify(kafkaTemplate, times(1)).send(eq("batch.ingestion.events"), eq(stuckBatch));
+        verify(kafkaTemplate, times(1)).send(eq("batch.ingestion.events.small"), eq(stuckBatch));
     }
 }
@@ -0,0 +1,64 @@
+package com.example.ingestiongateway.config;
+
+import com.example.ingestiongateway.util.VirtualThreads;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ConcurrencyConfigTest {
+
+    @Test
+    void transferExecutor_UsesPlatformPoolByDefault() throws Exception {
+        ExecutorService executor = transferExecutor(false);
+        try {
+            assertPlatformPool(executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void transferExecutor_FallsBackToPlatformPoolWithoutVirtualThreads() throws Exception {
+        assumeFalse(VirtualThreads.isSupported(), "runtime has virtual threads");
+
+        ExecutorService executor = transferExecutor(true);
+        try {
+            assertPlatformPool(executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void transferExecutor_StartsVirtualThreadsWhenAvailable() throws Exception {
+        assumeTrue(VirtualThreads.isSupported(), "runtime has no virtual threads");
+
+        ExecutorService executor = transferExecutor(true);
+        try {
+            assertFalse(executor instanceof ThreadPoolExecutor);
+            assertTrue((Boolean) Thread.class.getMethod("isVirtual")
+                    .invoke(executor.submit(Thread::currentThread).get()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static ExecutorService transferExecutor(boolean virtualThreads) {
+        ConcurrencyConfig config = new ConcurrencyConfig();
+        ReflectionTestUtils.setField(config, "virtualThreads", virtualThreads);
+        ReflectionTestUtils.setField(config, "transferThreads", 3);
+        return config.transferExecutor();
+    }
+
+    private static void assertPlatformPool(ExecutorService executor) throws Exception {
+        ThreadPoolExecutor pool = assertInstanceOf(ThreadPoolExecutor.class, executor);
+        assertEquals(3, pool.getMaximumPoolSize());
+        assertTrue(executor.submit(() -> Thread.currentThread().getName()).get().startsWith("transfer-"));
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.ingestiongateway.config;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinioEndpointBalancerTest {
+
+    private final ConcurrentMap<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> hostHeaders = new ConcurrentHashMap<>();
+    private final ExecutorService handlers = Executors.newCachedThreadPool();
+    private HttpServer nodeA;
+    private HttpServer nodeB;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        nodeA = startNode("a");
+        nodeB = startNode("b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.stop(0);
+        nodeB.stop(0);
+        handlers.shutdownNow();
+    }
+
+    @Test
+    void spreadsRequestsAndKeepsSignedHostHeader() throws IOException {
+        MinioEndpointBalancer balancer = new MinioEndpointBalancer(List.of(url(nodeA), url(nodeB)), 64);
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(balancer).build();
+
+        for (int i = 0; i < 10; i++) {
+            call(client, url(nodeA) + "/tmp-bucket/object");
+        }
+
+        assertEquals(5, hits.get("a").get());
+        assertEquals(5, hits.get("b").get());
+        // Both nodes see the host the request was signed for
+        assertEquals("minio:9000", hostHeaders.get("a"));
+        assertEquals("minio:9000", hostHeaders.get("b"));
+    }
+
+    @Test
+    void failsOverFromRefusedNodeAndMarksItDown() throws IOException {
+        String deadNode = "http://127.0.0.1:" + freePort();
+        MinioEndpointBalancer balancer = new MinioEndpointBalancer(List.of(deadNode, url(nodeB)), 64);
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(balancer).build();
+
+        for (int i = 0; i < 4; i++) {
+            call(client, deadNode + "/tmp-bucket/object");
+        }
+
+        assertEquals(4, hits.get("b").get());
+        assertFalse(balancer.endpoints().get(0).isHealthy());
+        assertTrue(balancer.endpoints().get(1).isHealthy());
+    }
+
+    @Test
+    void holdsNodeSlotUntilResponseBodyIsClosed() throws Exception {
+        MinioEndpointBalancer balancer = new MinioEndpointBalancer(List.of(url(nodeA)), 2);
+        MinioEndpointBalancer.Endpoint node = balancer.endpoints().get(0);
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(balancer).build();
+
+        Response held = client.newCall(request(url(nodeA) + "/tmp-bucket/large")).execute();
+        Response streaming = client.newCall(request(url(nodeA) + "/tmp-bucket/large")).execute();
+        assertEquals(2, node.inFlight()); // proceed() has returned, the bodies have not been read
+
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> second = caller.submit(() -> {
+                call(client, url(nodeA) + "/tmp-bucket/object");
+                return null;
+            });
+            assertThrows(TimeoutException.class, () -> second.get(300, TimeUnit.MILLISECONDS));
+
+            assertEquals("0123456789", streaming.body().string()); // Reads to the end and closes
+            second.get(5, TimeUnit.SECONDS);
+        } finally {
+            caller.shutdownNow();
+        }
+        held.close();
+        assertEquals(0, node.inFlight());
+    }
+
+    @Test
+    void streamedCopiesUpToTheNodeLimitAllFinish() throws Exception {
+        int limit = 4;
+        MinioEndpointBalancer balancer = new MinioEndpointBalancer(List.of(url(nodeA)), limit);
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(balancer).build();
+        CountDownLatch gets = new CountDownLatch(limit);
+
+        ExecutorService copiers = Executors.newFixedThreadPool(limit);
+        try {
+            List<Future<Integer>> copies = new ArrayList<>();
+            for (int i = 0; i < limit; i++) {
+                copies.add(copiers.submit(() -> {
+                    try (MinioEndpointBalancer.CopyPermit permit = balancer.acquireCopy();
+                            Response get = client.newCall(request(url(nodeA) + "/tmp-bucket/source")).execute()) {
+                        // Let every copy that can start hold its GET before any PUT
+                        gets.countDown();
+                        gets.await(300, TimeUnit.MILLISECONDS);
+                        Request put = request(url(nodeA) + "/prod-bucket/target").newBuilder()
+                                .put(RequestBody.create(get.body().source().readByteArray(4), null))
+                                .build();
+                        try (Response response = client.newCall(put).execute()) {
+                            return response.code();
+                        }
+                    }
+                }));
+            }
+            for (Future<Integer> copy : copies) {
+                assertEquals(200, copy.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            copiers.shutdownNow();
+        }
+        assertEquals(0, balancer.endpoints().get(0).inFlight());
+    }
+
+    @Test
+    void rejectsLimitThatLeavesNoSlotForACopysPut() {
+        assertThrows(IllegalArgumentException.class, () -> new MinioEndpointBalancer(List.of(url(nodeA)), 1));
+    }
+
+    private HttpServer startNode(String name) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(handlers);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            hits.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+            hostHeaders.put(name, exchange.getRequestHeaders().getFirst("Host"));
+            byte[] body = "0123456789".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        return server;
+    }
+
+    private static void call(OkHttpClient client, String url) throws IOException {
+        try (Response response = client.newCall(request(url)).execute()) {
+            assertEquals(200, response.code());
+        }
+    }
+
+    private static Request request(String url) {
+        // The MinIO client sets Host itself before signing
+        return new Request.Builder().url(url).header("Host", "minio:9000").build();
+    }
+
+    private static String url(HttpServer server) {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.ingestiongateway.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadPinningMonitorTest {
+
+    @Test
+    void record_DropsPinsBelowThreshold() {
+        VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(20);
+
+        monitor.record(Duration.ofMillis(5), "com.example.Client.send:42", () -> "stack");
+        monitor.record(Duration.ofMillis(19), "com.example.Client.send:42", () -> "stack");
+
+        assertTrue(monitor.pinSites().isEmpty());
+    }
+
+    @Test
+    void record_CountsPinsPerSiteAndFormatsStackOnce() {
+        VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(20);
+        AtomicInteger stacksFormatted = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            monitor.record(Duration.ofMillis(20 + i), "com.example.Client.send:42",
+                    () -> "stack " + stacksFormatted.incrementAndGet());
+        }
+        monitor.record(Duration.ofSeconds(1), "com.example.Pool.borrow:7", () -> "stack");
+
+        assertEquals(Map.of("com.example.Client.send:42", 3L, "com.example.Pool.borrow:7", 1L), monitor.pinSites());
+        assertEquals(1, stacksFormatted.get());
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.ingestiongateway.controller;
+
+import com.example.ingestiongateway.config.TenantProperties;
+import com.example.ingestiongateway.service.CapacityExceededException;
+import com.example.ingestiongateway.service.TenantAdmissionControl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantAdmissionFilterTest {
+
+    private TenantAdmissionControl admission;
+    private TenantAdmissionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        TenantProperties properties = new TenantProperties();
+        properties.getDefaults().setMaxConcurrentRequests(1);
+        admission = new TenantAdmissionControl(properties, new SimpleMeterRegistry());
+        filter = new TenantAdmissionFilter(admission);
+    }
+
+    @Test
+    void doFilter_RejectsWithoutReadingTheBody() throws Exception {
+        TenantAdmissionControl.Permit held = admission.admit("bulk", 0);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(upload("userName=bulk"), response, chain);
+
+        assertEquals(429, response.getStatus());
+        assertNull(chain.getRequest(), "chain must not run for a rejected upload");
+        held.close();
+    }
+
+    @Test
+    void doFilter_HoldsPermitForTheRequestAndMarksItAdmitted() throws Exception {
+        MockHttpServletRequest request = upload("userName=bulk");
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) {
+                // Still held while the controller runs
+                assertThrows(CapacityExceededException.class, () -> admission.admit("bulk", 0));
+            }
+        });
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertEquals(Boolean.TRUE, request.getAttribute(TenantAdmissionFilter.ADMITTED));
+        admission.admit("bulk", 0).close(); // Released afterwards
+    }
+
+    @Test
+    void doFilter_LeavesFormFieldUserNameToTheService() throws Exception {
+        MockHttpServletRequest request = upload(null);
+        request.setParameter("userName", "bulk");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+        assertNull(request.getAttribute(TenantAdmissionFilter.ADMITTED));
+    }
+
+    private static MockHttpServletRequest upload(String query) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", TenantAdmissionFilter.UPLOAD_PATH);
+        request.setServletPath(TenantAdmissionFilter.UPLOAD_PATH);
+        request.setQueryString(query);
+        request.setContentType("multipart/form-data; boundary=x");
+        return request;
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.ingestiongateway.service;
+
+import com.example.ingestiongateway.model.UploadSession;
+import com.example.ingestiongateway.model.UploadSessionStatus;
+import com.example.ingestiongateway.model.UploadedPart;
+import io.minio.messages.Part;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkedUploadServiceTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @TempDir
+    Path spillDir;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MinioService minioService;
+
+    @Mock
+    private IngestionService ingestionService;
+
+    @Mock
+    private TenantAdmissionControl tenantAdmissionControl;
+
+    @InjectMocks
+    private ChunkedUploadService service;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "defaultChunkSize", DataSize.ofMegabytes(8));
+        ReflectionTestUtils.setField(service, "maxChunkSize", DataSize.ofMegabytes(64));
+        ReflectionTestUtils.setField(service, "idleTimeoutMinutes", 60L);
+        ReflectionTestUtils.setField(service, "completionLeaseMinutes", 30L);
+        ReflectionTestUtils.setField(service, "spillDir", spillDir);
+    }
+
+    @Test
+    void createSession_SplitsIntoChunksAndRejectsUndersizedChunks() {
+        when(minioService.createStagingUpload(anyString(), eq("text/csv"))).thenReturn("upload-1");
+
+        UploadSessionStatus status = service.createSession("alice", "big.csv", "text/csv", 20 * MB, null);
+        assertEquals(8 * MB, status.chunkSize());
+        assertEquals(3, status.partCount());
+        assertEquals(0, status.nextOffset());
+
+        assertThrows(InvalidUploadException.class,
+                () -> service.createSession("alice", "big.csv", "text/csv", 20 * MB, MB));
+    }
+
+    @Test
+    void putChunk_RejectsWrongSizeWithoutUploading() {
+        when(mongoTemplate.findById("s1", UploadSession.class)).thenReturn(session(Map.of()));
+
+        assertThrows(InvalidUploadException.class,
+                () -> service.putChunk("s1", 3, new ByteArrayInputStream(new byte[10])));
+        verify(minioService, never()).uploadStagingPart(any(), any(), anyInt(), any(), anyLong());
+    }
+
+    @Test
+    void putChunk_UploadsPartAndRecordsIt() throws Exception {
+        // Last chunk of a 2 * 5 MB + 4 byte file
+        when(mongoTemplate.findById("s1", UploadSession.class)).thenReturn(session(Map.of()));
+        when(minioService.uploadStagingPart(eq("uploads/s1"), eq("upload-1"), eq(3), any(Path.class), eq(4L)))
+                .thenAnswer(invocation -> {
+                    assertArrayEquals(new byte[] { 1, 2, 3, 4 }, Files.readAllBytes(invocation.getArgument(3)));
+                    return "etag-3";
+                });
+        UploadSession updated = session(Map.of("3", new UploadedPart(3, "etag-3", 4)));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UploadSession.class))).thenReturn(updated);
+
+        UploadSessionStatus status = service.putChunk("s1", 3, new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 }));
+
+        assertEquals(List.of(3), status.receivedParts());
+        assertEquals(0, status.nextOffset());
+        try (var spills = Files.list(spillDir)) {
+            assertEquals(0, spills.count());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void complete_AssemblesPartsInOrderAndIngestsOneFileBatch() {
+        UploadSession open = session(Map.of(
+                "2", new UploadedPart(2, "etag-2", 5 * MB),
+                "1", new UploadedPart(1, "etag-1", 5 * MB),
+                "3", new UploadedPart(3, "etag-3", 4)));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(UploadSession.class)))
+                .thenReturn(open);
+        when(minioService.promoteStagingObject("uploads/s1")).thenReturn("26/01/02/hash");
+
+        String batchId = service.complete("s1");
+
+        ArgumentCaptor<List<Part>> parts = ArgumentCaptor.forClass(List.class);
+        verify(minioService).completeStagingUpload(eq("uploads/s1"), eq("upload-1"), parts.capture());
+        assertEquals(List.of(1, 2, 3), parts.getValue().stream().map(Part::partNumber).toList());
+        // The batch ID is recorded with PROMOTED, before the batch is created
+        InOrder order = inOrder(mongoTemplate, ingestionService);
+        order.verify(mongoTemplate).updateFirst(any(Query.class),
+                argThat((Update update) -> update.getUpdateObject().toString().contains("batchId=" + batchId)),
+                eq(UploadSession.class));
+        order.verify(ingestionService).ingestStoredFiles(batchId,
+                List.of(new IngestionService.StoredFile("big.csv", "text/csv", 10 * MB + 4, "26/01/02/hash")),
+                "alice");
+        verify(minioService).removeStagingObject("uploads/s1");
+    }
+
+    @Test
+    void complete_FailedIngestKeepsStagingObjectAndResumesFromPromoted() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(UploadSession.class)))
+                .thenReturn(session(Map.of(
+                        "1", new UploadedPart(1, "etag-1", 5 * MB),
+                        "2", new UploadedPart(2, "etag-2", 5 * MB),
+                        "3", new UploadedPart(3, "etag-3", 4))));
+        when(minioService.promoteStagingObject("uploads/s1")).thenReturn("26/01/02/hash");
+        when(ingestionService.ingestStoredFiles(anyString(), anyList(), eq("alice")))
+                .thenThrow(new RuntimeException("mongo"));
+
+        assertThrows(RuntimeException.class, () -> service.complete("s1"));
+
+        verify(minioService, never()).removeStagingObject(any());
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, atLeastOnce()).updateFirst(any(Query.class), updates.capture(),
+                eq(UploadSession.class));
+        List<Object> sets = updates.getAllValues().stream().map(update -> update.getUpdateObject().get("$set"))
+                .toList();
+        assertTrue(sets.stream().anyMatch(set -> set.toString().contains("tmpPath=26/01/02/hash")));
+        // Released back to the last stage reached
+        assertEquals(UploadSession.PROMOTED,
+                ((org.bson.Document) sets.get(sets.size() - 1)).get("status"));
+    }
+
+    @Test
+    void complete_RetryOfPromotedSessionOnlyIngests() {
+        UploadSession promoted = session(Map.of());
+        promoted.setStatus(UploadSession.PROMOTED);
+        promoted.setResumeStatus(UploadSession.PROMOTED);
+        promoted.setTmpPath("26/01/02/hash");
+        promoted.setBatchId("batch-1");
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(UploadSession.class)))
+                .thenReturn(promoted);
+
+        assertEquals("batch-1", service.complete("s1"));
+
+        verify(minioService, never()).completeStagingUpload(any(), any(), any());
+        verify(minioService, never()).promoteStagingObject(any());
+        verify(ingestionService).ingestStoredFiles("batch-1",
+                List.of(new IngestionService.StoredFile("big.csv", "text/csv", 10 * MB + 4, "26/01/02/hash")),
+                "alice");
+        verify(minioService).removeStagingObject("uploads/s1");
+    }
+
+    @Test
+    void complete_TakesOverStaleClaimFromLastStageReached() {
+        // The instance that claimed it died after assembling
+        UploadSession stale = session(Map.of());
+        stale.setStatus(UploadSession.COMPLETING);
+        stale.setResumeStatus(UploadSession.ASSEMBLED);
+        stale.setClaimedAt(new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(UploadSession.class)))
+                .thenReturn(stale);
+        when(minioService.promoteStagingObject("uploads/s1")).thenReturn("26/01/02/hash");
+
+        assertNotNull(service.complete("s1"));
+
+        verify(minioService, never()).completeStagingUpload(any(), any(), any());
+        ArgumentCaptor<Query> claim = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndModify(claim.capture(), any(Update.class), eq(UploadSession.class));
+        assertTrue(claim.getValue().getQueryObject().toJson().contains("claimedAt"));
+    }
+
+    @Test
+    void complete_TakeoverAfterIngestReusesTheBatch() {
+        // The instance that claimed it died after ingesting, before recording COMPLETED
+        UploadSession stale = session(Map.of());
+        stale.setStatus(UploadSession.COMPLETING);
+        stale.setResumeStatus(UploadSession.PROMOTED);
+        stale.setTmpPath("26/01/02/hash");
+        stale.setBatchId("batch-1");
+        stale.setClaimedAt(new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(UploadSession.class)))
+                .thenReturn(stale);
+
+        assertEquals("batch-1", service.complete("s1"));
+
+        // IngestionService finds batch-1 and leaves it alone rather than creating a second batch
+        verify(ingestionService).ingestStoredFiles(eq("batch-1"), anyList(), eq("alice"));
+        verifyNoMoreInteractions(ingestionService);
+        verify(minioService, never()).promoteStagingObject(any());
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), updates.capture(), eq(UploadSession.class));
+        assertEquals(UploadSession.COMPLETED, ((org.bson.Document) updates.getValue().getUpdateObject().get("$set"))
+                .get("status"));
+    }
+
+    @Test
+    void abortExpired_AbortsCompletionWhoseClaimOutlivedTheLease() {
+        UploadSession stale = session(Map.of());
+        stale.setStatus(UploadSession.COMPLETING);
+        stale.setClaimedAt(new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+        when(mongoTemplate.find(any(Query.class), eq(UploadSession.class))).thenReturn(List.of(stale));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(UploadSession.class)))
+                .thenReturn(stale);
+
+        assertEquals(1, service.abortExpired(10));
+
+        // Died before assembling: release the parts and any staging object
+        verify(minioService).abortStagingUpload("uploads/s1", "upload-1");
+        verify(minioService).removeStagingObject("uploads/s1");
+        ArgumentCaptor<Query> claim = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndModify(claim.capture(), any(Update.class), eq(UploadSession.class));
+        assertTrue(claim.getValue().getQueryObject().toJson().contains("claimedAt"),
+                "claim must not race a takeover");
+    }
+
+    @Test
+    void complete_ReturnsExistingBatchWhenAlreadyCompleted() {
+        UploadSession completed = session(Map.of());
+        completed.setStatus(UploadSession.COMPLETED);
+        completed.setBatchId("batch-1");
+        when(mongoTemplate.findById("s1", UploadSession.class)).thenReturn(completed);
+
+        assertEquals("batch-1", service.complete("s1"));
+        verifyNoInteractions(minioService, ingestionService);
+    }
+
+    private static UploadSession session(Map<String, UploadedPart> parts) {
+        return UploadSession.builder()
+                .id("s1")
+                .userName("alice")
+                .filename("big.csv")
+                .contentType("text/csv")
+                .size(10 * MB + 4)
+                .chunkSize(5 * MB)
+                .partCount(3)
+                .uploadId("upload-1")
+                .stagingObject("uploads/s1")
+                .status(UploadSession.OPEN)
+                .parts(new HashMap<>(parts))
+                .build();
+    }
+}
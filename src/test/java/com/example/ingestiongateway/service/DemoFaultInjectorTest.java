@@ -0,0 +1,36 @@
+package com.example.ingestiongateway.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DemoFaultInjectorTest {
+
+    @Test
+    void inject_UnconfiguredStageIsNoOp() {
+        DemoFaultInjector injector = new DemoFaultInjector();
+        assertDoesNotThrow(() -> injector.inject(FaultInjector.WORKER_COPY));
+    }
+
+    @Test
+    void inject_AppliesDelayAndFailureRate() {
+        DemoFaultInjector.StageFault delayed = new DemoFaultInjector.StageFault();
+        delayed.setDelay(Duration.ofMillis(50));
+        DemoFaultInjector.StageFault failing = new DemoFaultInjector.StageFault();
+        failing.setFailureRate(1.0);
+
+        DemoFaultInjector injector = new DemoFaultInjector();
+        injector.setStages(Map.of(FaultInjector.WORKER_READY, delayed, FaultInjector.WORKER_COPY, failing));
+
+        long start = System.nanoTime();
+        injector.inject(FaultInjector.WORKER_READY);
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(50).toNanos());
+
+        InjectedFaultException thrown = assertThrows(InjectedFaultException.class,
+                () -> injector.inject(FaultInjector.WORKER_COPY));
+        assertEquals("Injected failure at stage worker-copy", thrown.getMessage());
+    }
+}
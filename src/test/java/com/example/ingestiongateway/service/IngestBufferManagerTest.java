@@ -0,0 +1,92 @@
+package com.example.ingestiongateway.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestBufferManagerTest {
+
+    @TempDir
+    Path spillDir;
+
+    private IngestBufferManager manager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        manager = new IngestBufferManager();
+        ReflectionTestUtils.setField(manager, "inMemoryThreshold", DataSize.ofBytes(1024));
+        ReflectionTestUtils.setField(manager, "memoryBudget", DataSize.ofBytes(2048));
+        ReflectionTestUtils.setField(manager, "acquireTimeoutMs", 10L);
+        ReflectionTestUtils.setField(manager, "spillDir", spillDir);
+        manager.init();
+    }
+
+    @Test
+    void smallFile_BufferedInMemoryAndReturnedToPool() throws Exception {
+        byte[] content = "small file".getBytes();
+        MockMultipartFile file = new MockMultipartFile("files", "small.txt", "text/plain", content);
+
+        try (IngestBuffer buffer = manager.buffer(file)) {
+            assertTrue(buffer.isInMemory());
+            assertEquals(content.length, buffer.getSize());
+            assertEquals(sha256(content), buffer.getSha256());
+            assertArrayEquals(content, readAll(buffer));
+            // Stream can be reopened (e.g. for a retried upload)
+            assertArrayEquals(content, readAll(buffer));
+            assertEquals(1, manager.availableBuffers());
+        }
+        assertEquals(2, manager.availableBuffers());
+    }
+
+    @Test
+    void largeFile_SpilledAndDeletedOnClose() throws Exception {
+        byte[] content = new byte[4096];
+        content[4095] = 7;
+        MockMultipartFile file = new MockMultipartFile("files", "large.bin", "application/octet-stream", content);
+
+        try (IngestBuffer buffer = manager.buffer(file)) {
+            assertFalse(buffer.isInMemory());
+            assertEquals(sha256(content), buffer.getSha256());
+            assertArrayEquals(content, readAll(buffer));
+            assertEquals(1, countSpillFiles());
+        }
+        assertEquals(0, countSpillFiles());
+    }
+
+    @Test
+    void budgetExhausted_RejectsWithCapacityExceeded() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("files", "small.txt", "text/plain", new byte[10]);
+
+        try (IngestBuffer first = manager.buffer(file); IngestBuffer second = manager.buffer(file)) {
+            assertThrows(CapacityExceededException.class, () -> manager.buffer(file));
+        }
+        manager.buffer(file).close();
+    }
+
+    private long countSpillFiles() throws Exception {
+        try (var files = Files.list(spillDir)) {
+            return files.count();
+        }
+    }
+
+    private static byte[] readAll(IngestBuffer buffer) throws Exception {
+        try (InputStream in = buffer.openStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.ingestiongateway.service;
+
+import com.example.ingestiongateway.config.CompressionProperties;
+import com.example.ingestiongateway.config.LaneProperties;
+import com.example.ingestiongateway.model.BatchDocument;
+import com.example.ingestiongateway.model.FileMetadata;
+import com.example.ingestiongateway.model.FileTransferRequest;
+import com.example.ingestiongateway.model.InnerRecord;
+import com.example.ingestiongateway.util.CompressionCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IngestionCompressionTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MinioService minioService;
+
+    @Mock
+    private IngestBufferManager ingestBufferManager;
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Mock
+    private ServerIdentityService serverIdentityService;
+
+    @Mock
+    private ExecutorService transferExecutor; // Unused: parallelism is set to 1 in setup, so tasks run inline
+
+    @Mock
+    private FaultInjector faultInjector;
+
+    @Mock
+    private TenantAdmissionControl tenantAdmissionControl;
+
+    @Mock
+    private SmallFilePacker smallFilePacker; // Packing off: accepts() is false
+
+    @Spy
+    private LaneProperties laneProperties = new LaneProperties();
+
+    @Spy
+    private CompressionProperties compressionProperties = new CompressionProperties();
+
+    @InjectMocks
+    private IngestionService ingestionService;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(ingestionService, "ingestionTopic", "batch.ingestion.events");
+        ReflectionTestUtils.setField(ingestionService, "uploadParallelism", 1);
+    }
+
+    @Test
+    void compressedFile_DecompressedOnDeliveryRecordsOnlyTmpCodec() {
+        when(minioService.uploadToTmp(any(), eq(CompressionCodec.ZSTD))).thenReturn("26/10/19/abc.zst");
+
+        BatchDocument batch = ingest(file("data.csv", "text/csv", 10_000));
+
+        FileTransferRequest request = batch.getTransferRequests().get(0);
+        assertEquals("zstd", request.getCodec());
+        assertFalse(request.isKeepCompressed());
+        assertEquals(List.of(new InnerRecord("type", "text/csv"), new InnerRecord("status", "received"),
+                new InnerRecord("tmp-codec", "zstd")), innerRecords(batch));
+    }
+
+    @Test
+    void compressedFile_KeptCompressedAlsoRecordsDeliveryCodec() {
+        compressionProperties.setDecompressOnDelivery(false);
+        when(minioService.uploadToTmp(any(), eq(CompressionCodec.LZ4))).thenReturn("26/10/19/abc.lz4");
+
+        BatchDocument batch = ingest(file("log.txt", "text/plain", 10_000));
+
+        FileTransferRequest request = batch.getTransferRequests().get(0);
+        assertEquals("lz4", request.getCodec());
+        assertTrue(request.isKeepCompressed());
+        assertTrue(innerRecords(batch).contains(new InnerRecord("tmp-codec", "lz4")));
+        assertTrue(innerRecords(batch).contains(new InnerRecord("codec", "lz4")));
+    }
+
+    @Test
+    void incompressibleFile_RecordsNoCodec() {
+        compressionProperties.setDecompressOnDelivery(false);
+        when(minioService.uploadToTmp(any(), isNull())).thenReturn("26/10/19/abc");
+
+        BatchDocument batch = ingest(file("photo.png", "image/png", 10_000));
+
+        FileTransferRequest request = batch.getTransferRequests().get(0);
+        assertNull(request.getCodec());
+        assertFalse(request.isKeepCompressed());
+        assertEquals(List.of(new InnerRecord("type", "image/png"), new InnerRecord("status", "received")),
+                innerRecords(batch));
+    }
+
+    private BatchDocument ingest(MultipartFile file) {
+        ingestionService.processUpload(List.of(file), "testUser", false);
+        ArgumentCaptor<BatchDocument> sent = ArgumentCaptor.forClass(BatchDocument.class);
+        verify(kafkaTemplate).send(eq("batch.ingestion.events.small"), sent.capture());
+        return sent.getValue();
+    }
+
+    private static List<InnerRecord> innerRecords(BatchDocument batch) {
+        FileMetadata meta = batch.getKafkaMetadataAlpha().get(0);
+        return meta.innerRecords();
+    }
+
+    private static MultipartFile file(String name, String contentType, long size) {
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getOriginalFilename()).thenReturn(name);
+        when(file.getContentType()).thenReturn(contentType);
+        when(file.getSize()).thenReturn(size);
+        return file;
+    }
+}
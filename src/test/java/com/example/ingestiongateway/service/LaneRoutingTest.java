@@ -0,0 +1,104 @@
+package com.example.ingestiongateway.service;
+
+import com.example.ingestiongateway.config.CompressionProperties;
+import com.example.ingestiongateway.config.LaneProperties;
+import com.example.ingestiongateway.model.BatchDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LaneRoutingTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MinioService minioService;
+
+    @Mock
+    private IngestBufferManager ingestBufferManager;
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Mock
+    private ServerIdentityService serverIdentityService;
+
+    @Mock
+    private ExecutorService transferExecutor; // Unused: parallelism is set to 1 in setup, so tasks run inline
+
+    @Mock
+    private FaultInjector faultInjector;
+
+    @Mock
+    private TenantAdmissionControl tenantAdmissionControl;
+
+    @Mock
+    private SmallFilePacker smallFilePacker; // Packing off: accepts() is false
+
+    @Spy
+    private LaneProperties laneProperties = new LaneProperties();
+
+    @Spy
+    private CompressionProperties compressionProperties = new CompressionProperties();
+
+    @InjectMocks
+    private IngestionService ingestionService;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(ingestionService, "ingestionTopic", "batch.ingestion.events");
+        ReflectionTestUtils.setField(ingestionService, "uploadParallelism", 1);
+        when(minioService.uploadToTmp(any(), any())).thenReturn("tmp/path/hash");
+    }
+
+    @Test
+    void largeBatchRoutedToLargeLane() {
+        MultipartFile file = file("bulk.parquet", laneProperties.getLargeBatchBytes().toBytes());
+
+        ingestionService.processUpload(List.of(file), "bulkUser", false);
+
+        verify(kafkaTemplate, times(1)).send(eq("batch.ingestion.events.large"),
+                argThat(b -> "large".equals(((BatchDocument) b).getLane())));
+    }
+
+    @Test
+    void manySmallFilesRoutedToLargeLane() {
+        laneProperties.setLargeBatchFiles(3);
+
+        ingestionService.processUpload(List.of(file("a.csv", 10), file("b.csv", 10), file("c.csv", 10)),
+                "bulkUser", false);
+
+        verify(kafkaTemplate, times(1)).send(eq("batch.ingestion.events.large"), any(BatchDocument.class));
+    }
+
+    @Test
+    void smallBatchRoutedToSmallLane() {
+        ingestionService.processUpload(List.of(file("a.csv", 10)), "interactiveUser", false);
+
+        verify(kafkaTemplate, times(1)).send(eq("batch.ingestion.events.small"),
+                argThat(b -> "small".equals(((BatchDocument) b).getLane())));
+    }
+
+    private static MultipartFile file(String name, long size) {
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getOriginalFilename()).thenReturn(name);
+        when(file.getSize()).thenReturn(size);
+        return file;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.ingestiongateway.service;
+
+import com.example.ingestiongateway.config.CompressionProperties;
+import com.example.ingestiongateway.config.MinioEndpointBalancer;
+import com.example.ingestiongateway.model.FileTransferRequest;
+import com.example.ingestiongateway.util.CompressionCodec;
+import io.minio.CopyObjectArgs;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import okhttp3.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MinioServiceTest {
+
+    private static final byte[] CSV = csv();
+
+    @Mock
+    private MinioClient minioClient;
+
+    @Mock
+    private MinioAsyncClient minioAsyncClient;
+
+    private MinioService minioService;
+
+    private final List<PutObjectArgs> puts = new ArrayList<>();
+    private final List<byte[]> putContents = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        minioService = new MinioService(minioClient, minioAsyncClient, new CompressionProperties(),
+                new MinioEndpointBalancer(List.of("http://127.0.0.1:9000"), 64));
+        ReflectionTestUtils.setField(minioService, "tmpBucketName", "tmp-bucket");
+        ReflectionTestUtils.setField(minioService, "prodBucketName", "prod-bucket");
+    }
+
+    @Test
+    void uploadToTmp_CompressesWithCodecAndRecordsIt() throws Exception {
+        capturePuts();
+
+        String objectName = minioService.uploadToTmp(buffer("abc123", CSV), CompressionCodec.ZSTD);
+
+        assertEquals(MinioService.tmpObjectName("abc123") + ".zst", objectName);
+        PutObjectArgs put = puts.get(0);
+        assertEquals("tmp-bucket", put.bucket());
+        // Smaller than a part: compressed in memory and PUT with its length
+        assertEquals(putContents.get(0).length, put.objectSize());
+        assertEquals(List.of("zstd"), List.copyOf(put.genHeaders().get("x-amz-meta-codec")));
+        assertEquals(List.of(Long.toString(CSV.length)),
+                List.copyOf(put.genHeaders().get("x-amz-meta-original-size")));
+        assertTrue(putContents.get(0).length < CSV.length);
+        assertArrayEquals(CSV, CompressionCodec.ZSTD.decompress(new ByteArrayInputStream(putContents.get(0)))
+                .readAllBytes());
+    }
+
+    @Test
+    void uploadToTmp_StoresAsReceivedWithoutCodec() throws Exception {
+        capturePuts();
+
+        String objectName = minioService.uploadToTmp(buffer("abc123", CSV), null);
+
+        assertEquals(MinioService.tmpObjectName("abc123"), objectName);
+        assertEquals(CSV.length, puts.get(0).objectSize());
+        assertTrue(puts.get(0).genHeaders().get("x-amz-meta-codec").isEmpty());
+        assertArrayEquals(CSV, putContents.get(0));
+    }
+
+    @Test
+    void copyToProd_DecompressesOnDelivery() throws Exception {
+        capturePuts();
+        byte[] compressed = CompressionCodec.LZ4.compress(new ByteArrayInputStream(CSV), 0).readAllBytes();
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenReturn(new GetObjectResponse(
+                Headers.of("x-amz-meta-original-size", Long.toString(CSV.length)), "tmp-bucket", "",
+                "26/10/19/abc123.lz4", new ByteArrayInputStream(compressed)));
+
+        minioService.copyToProd(request("lz4", false));
+
+        PutObjectArgs put = puts.get(0);
+        assertEquals("prod-bucket", put.bucket());
+        assertEquals("26/10/19/uuid/data.csv", put.object());
+        assertEquals("text/csv", put.contentType());
+        assertEquals(CSV.length, put.objectSize());
+        assertArrayEquals(CSV, putContents.get(0));
+        verify(minioClient, never()).copyObject(any());
+    }
+
+    @Test
+    void copyToProd_StreamsInDefaultPartsWhenOriginalSizeWasNotRecorded() throws Exception {
+        capturePuts();
+        byte[] compressed = CompressionCodec.LZ4.compress(new ByteArrayInputStream(CSV), 0).readAllBytes();
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenReturn(new GetObjectResponse(
+                Headers.of(), "tmp-bucket", "", "26/10/19/abc123.lz4", new ByteArrayInputStream(compressed)));
+
+        minioService.copyToProd(request("lz4", false));
+
+        assertEquals(-1, puts.get(0).objectSize());
+        assertEquals(MinioService.STREAM_PART_SIZE, puts.get(0).partSize());
+        assertArrayEquals(CSV, putContents.get(0));
+    }
+
+    @Test
+    void streamOfUnknownLength_DerivesPartSizeFromOriginalSize() throws Exception {
+        long gib = 1024L * 1024 * 1024;
+        PutObjectArgs put = MinioService.streamOfUnknownLength(PutObjectArgs.builder().bucket("tmp-bucket").object("large"),
+                new ByteArrayInputStream(new byte[0]), gib).build();
+
+        assertEquals(-1, put.objectSize());
+        assertEquals(MinioService.MIN_PART_SIZE, put.partSize());
+        // 100 GiB plus codec overhead needs 11 MiB parts to stay within 10,000 parts
+        assertEquals(11L * 1024 * 1024, MinioService.partSizeFor(100 * gib));
+        assertEquals(MinioService.STREAM_PART_SIZE, MinioService.partSizeFor(-1));
+    }
+
+    @Test
+    void copyToProd_KeepCompressedCopiesServerSide() throws Exception {
+        minioService.copyToProd(request("lz4", true));
+
+        verify(minioClient).copyObject(argThat((CopyObjectArgs args) -> "prod-bucket".equals(args.bucket())
+                && "26/10/19/abc123.lz4".equals(args.source().object())));
+        verify(minioClient, never()).getObject(any());
+        verify(minioClient, never()).putObject(any());
+    }
+
+    /**
+     * The streams are closed once putObject returns, so they are read here.
+     */
+    private void capturePuts() throws Exception {
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenAnswer(invocation -> {
+            PutObjectArgs args = invocation.getArgument(0);
+            puts.add(args);
+            putContents.add(args.stream().readAllBytes());
+            return null;
+        });
+    }
+
+    private static FileTransferRequest request(String codec, boolean keepCompressed) {
+        return FileTransferRequest.builder()
+                .tempPath("26/10/19/abc123.lz4")
+                .prodUuid("uuid")
+                .targetFilename("data.csv")
+                .contentType("text/csv")
+                .codec(codec)
+                .keepCompressed(keepCompressed)
+                .build();
+    }
+
+    private static IngestBuffer buffer(String hash, byte[] content) {
+        return new IngestBuffer("data.csv", "text/csv", hash, content.length, ByteBuffer.wrap(content), null, () -> {
+        });
+    }
+
+    private static byte[] csv() {
+        StringBuilder csv = new StringBuilder("id,tenant,amount\n");
+        for (int i = 0; i < 5_000; i++) {
+            csv.append(i).append(",tenant-").append(i % 7).append(',').append(i * 13 % 1000).append(".00\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
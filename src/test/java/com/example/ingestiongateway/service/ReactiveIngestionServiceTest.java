@@ -0,0 +1,223 @@
+package com.example.ingestiongateway.service;
+
+import com.example.ingestiongateway.config.CompressionProperties;
+import com.example.ingestiongateway.config.LaneProperties;
+import com.example.ingestiongateway.config.TenantProperties;
+import com.example.ingestiongateway.model.BatchDocument;
+import com.example.ingestiongateway.model.FileTransferRequest;
+import com.example.ingestiongateway.util.CompressionCodec;
+import com.example.ingestiongateway.util.ContentHasher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.MinioAsyncClient;
+import io.minio.PutObjectArgs;
+import io.minio.UploadObjectArgs;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveIngestionServiceTest {
+
+    @TempDir
+    Path spillDir;
+
+    @Mock
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Mock
+    private MinioAsyncClient minioAsyncClient;
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Mock
+    private ServerIdentityService serverIdentityService;
+
+    @Mock
+    private SmallFilePacker smallFilePacker; // Packing off unless a test turns it on
+
+    private ReactiveIngestionService service;
+
+    private final List<String> savedStatuses = new ArrayList<>();
+    private final List<BatchDocument> saved = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        service = new ReactiveIngestionService(reactiveMongoTemplate, minioAsyncClient, kafkaTemplate,
+                serverIdentityService, new TenantAdmissionControl(new TenantProperties(), new SimpleMeterRegistry()),
+                new LaneProperties(), smallFilePacker, new CompressionProperties());
+        ReflectionTestUtils.setField(service, "ingestionTopic", "batch.ingestion.events");
+        ReflectionTestUtils.setField(service, "tmpBucketName", "tmp-bucket");
+        ReflectionTestUtils.setField(service, "spillDir", spillDir);
+        ReflectionTestUtils.setField(service, "inMemoryThreshold", DataSize.ofKilobytes(1));
+
+        when(reactiveMongoTemplate.save(any(BatchDocument.class))).thenAnswer(invocation -> {
+            BatchDocument document = invocation.getArgument(0);
+            savedStatuses.add(document.getStatus());
+            saved.add(document);
+            return Mono.just(document);
+        });
+        lenient().when(kafkaTemplate.send(any(String.class), any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void processUpload_StreamsSmallPartsFromMemoryAndPublishesReadyBatch() throws Exception {
+        // Spilling would fail: the directory does not exist
+        ReflectionTestUtils.setField(service, "spillDir", spillDir.resolve("absent"));
+        byte[] content = bytes(600);
+        List<byte[]> uploaded = new ArrayList<>();
+        List<PutObjectArgs> puts = new ArrayList<>();
+        when(minioAsyncClient.putObject(any(PutObjectArgs.class))).thenAnswer(invocation -> {
+            PutObjectArgs args = invocation.getArgument(0);
+            puts.add(args);
+            uploaded.add(args.stream().readAllBytes());
+            return CompletableFuture.completedFuture(null);
+        });
+
+        String batchId = upload(Flux.concat(
+                part("a.bin", MediaType.APPLICATION_OCTET_STREAM, content),
+                part("b.bin", MediaType.APPLICATION_OCTET_STREAM, content)));
+
+        // Same content, same content-addressed tmp object
+        String objectName = MinioService.tmpObjectName(ContentHasher.sha256Hex(ByteBuffer.wrap(content)));
+        assertEquals(List.of(objectName, objectName), puts.stream().map(PutObjectArgs::object).toList());
+        assertEquals(content.length, puts.get(0).objectSize());
+        assertArrayEquals(content, uploaded.get(0));
+        verify(minioAsyncClient, never()).uploadObject(any());
+
+        assertEquals(List.of("PENDING", "READY"), savedStatuses);
+        BatchDocument ready = saved.get(1);
+        assertEquals(batchId, ready.getId());
+        assertEquals(List.of(objectName, objectName),
+                ready.getTransferRequests().stream().map(FileTransferRequest::getTempPath).toList());
+        assertEquals(List.of("a.bin", "b.bin"),
+                ready.getTransferRequests().stream().map(FileTransferRequest::getTargetFilename).toList());
+        verify(kafkaTemplate).send("batch.ingestion.events.small", ready);
+    }
+
+    @Test
+    void processUpload_SpillsPartPastThresholdAndUploadsTheFile() throws Exception {
+        byte[] content = bytes(5_000);
+        List<byte[]> uploaded = new ArrayList<>();
+        when(minioAsyncClient.uploadObject(any(UploadObjectArgs.class))).thenAnswer(invocation -> {
+            UploadObjectArgs args = invocation.getArgument(0);
+            assertEquals(spillDir, Path.of(args.filename()).getParent());
+            uploaded.add(Files.readAllBytes(Path.of(args.filename())));
+            return CompletableFuture.completedFuture(null);
+        });
+
+        upload(part("large.bin", MediaType.APPLICATION_OCTET_STREAM, content));
+
+        assertArrayEquals(content, uploaded.get(0));
+        verify(minioAsyncClient).uploadObject(argThat((UploadObjectArgs args) -> MinioService.tmpObjectName(
+                ContentHasher.sha256Hex(ByteBuffer.wrap(content))).equals(args.object())));
+        try (var spills = Files.list(spillDir)) {
+            assertEquals(0, spills.count());
+        }
+    }
+
+    @Test
+    void processUpload_CompressesListedTypes() throws Exception {
+        byte[] content = csv();
+        List<byte[]> uploaded = new ArrayList<>();
+        List<PutObjectArgs> puts = new ArrayList<>();
+        when(minioAsyncClient.putObject(any(PutObjectArgs.class))).thenAnswer(invocation -> {
+            PutObjectArgs args = invocation.getArgument(0);
+            puts.add(args);
+            uploaded.add(args.stream().readAllBytes());
+            return CompletableFuture.completedFuture(null);
+        });
+
+        upload(part("data.csv", MediaType.parseMediaType("text/csv"), content));
+
+        PutObjectArgs put = puts.get(0);
+        assertEquals(MinioService.tmpObjectName(ContentHasher.sha256Hex(ByteBuffer.wrap(content))) + ".zst",
+                put.object());
+        assertEquals(List.of("zstd"), List.copyOf(put.genHeaders().get("x-amz-meta-codec")));
+        assertEquals(uploaded.get(0).length, put.objectSize()); // Smaller than a part, so its length is known
+        assertArrayEquals(content, CompressionCodec.ZSTD.decompress(new ByteArrayInputStream(uploaded.get(0)))
+                .readAllBytes());
+        assertEquals("zstd", saved.get(1).getTransferRequests().get(0).getCodec());
+    }
+
+    @Test
+    void processUpload_AddsSmallFilesToPack() {
+        byte[] content = bytes(600);
+        String hash = ContentHasher.sha256Hex(ByteBuffer.wrap(content));
+        when(smallFilePacker.accepts(content.length)).thenReturn(true);
+        when(smallFilePacker.add(eq(hash), any(byte[].class))).thenAnswer(invocation -> {
+            assertArrayEquals(content, invocation.getArgument(1));
+            return CompletableFuture.completedFuture(new SmallFilePacker.PackedFile("packs/p1", 128, 600));
+        });
+
+        upload(part("small.bin", MediaType.APPLICATION_OCTET_STREAM, content));
+
+        FileTransferRequest request = saved.get(1).getTransferRequests().get(0);
+        assertEquals("packs/p1", request.getTempPath());
+        assertEquals(128, request.getPackOffset());
+        assertEquals(600, request.getPackLength());
+        verifyNoInteractions(minioAsyncClient);
+    }
+
+    private String upload(Flux<? extends PartEvent> parts) {
+        return service.processUpload(Flux.from(parts).map(PartEvent.class::cast), "alice", 0)
+                .block(Duration.ofSeconds(10));
+    }
+
+    /**
+     * A file part delivered in 256-byte buffers.
+     */
+    private static Flux<FilePartEvent> part(String filename, MediaType contentType, byte[] content) {
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int offset = 0; offset < content.length; offset += 256) {
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(
+                    Arrays.copyOfRange(content, offset, Math.min(content.length, offset + 256))));
+        }
+        return FilePartEvent.create("files", filename, contentType, Flux.fromIterable(buffers));
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        return content;
+    }
+
+    private static byte[] csv() {
+        StringBuilder csv = new StringBuilder("id,tenant,amount\n");
+        for (int i = 0; i < 500; i++) {
+            csv.append(i).append(",tenant-").append(i % 7).append(',').append(i * 13 % 1000).append(".00\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
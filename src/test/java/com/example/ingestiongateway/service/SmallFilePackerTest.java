@@ -0,0 +1,244 @@
+package com.example.ingestiongateway.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.example.ingestiongateway.model.PackIndexEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SmallFilePackerTest {
+
+    @Mock
+    private MinioService minioService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations indexOperations;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @InjectMocks
+    private SmallFilePacker packer;
+
+    private final ListAppender<ILoggingEvent> logs = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        ((Logger) LoggerFactory.getLogger(SmallFilePacker.class)).addAppender(logs);
+        logs.start();
+        when(mongoTemplate.indexOps(PackIndexEntry.class)).thenReturn(indexOperations);
+        lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PackIndexEntry.class))
+                .thenReturn(bulkOperations);
+
+        ReflectionTestUtils.setField(packer, "enabled", true);
+        ReflectionTestUtils.setField(packer, "maxFileSize", DataSize.ofBytes(16));
+        ReflectionTestUtils.setField(packer, "targetPackSize", DataSize.ofBytes(12));
+        ReflectionTestUtils.setField(packer, "maxFilesPerPack", 100);
+        ReflectionTestUtils.setField(packer, "lingerMs", 60_000L);
+        ReflectionTestUtils.setField(packer, "flushThreads", 1);
+        ReflectionTestUtils.setField(packer, "indexTtlHours", 48L);
+        ReflectionTestUtils.setField(packer, "shutdownTimeoutMs", 5_000L);
+        packer.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        packer.shutdown();
+        ((Logger) LoggerFactory.getLogger(SmallFilePacker.class)).detachAppender(logs);
+        // Tests expecting failures assert on their logs and take them out
+        assertEquals(List.of(), problems(), "unexpected warnings or errors");
+    }
+
+    @Test
+    void accepts_OnlySmallFiles() {
+        assertTrue(packer.accepts(16));
+        assertFalse(packer.accepts(17));
+    }
+
+    @Test
+    void add_CoalescesFilesIntoOnePackWrittenWhenFull() throws Exception {
+        AtomicReference<String> written = new AtomicReference<>();
+        doAnswer(invocation -> {
+            byte[] content = invocation.getArgument(1);
+            written.set(new String(content, 0, invocation.getArgument(2), StandardCharsets.UTF_8));
+            return null;
+        }).when(minioService).uploadPack(anyString(), any(), anyInt());
+
+        CompletableFuture<SmallFilePacker.PackedFile> first = packer.add("h1", bytes("abcd"));
+        CompletableFuture<SmallFilePacker.PackedFile> duplicate = packer.add("h1", bytes("abcd"));
+        CompletableFuture<SmallFilePacker.PackedFile> second = packer.add("h2", bytes("efgh"));
+        assertFalse(first.isDone()); // Waits for the pack, not for its own PUT
+
+        CompletableFuture<SmallFilePacker.PackedFile> third = packer.add("h3", bytes("ijklmn"));
+        SmallFilePacker.PackedFile location = third.get(5, TimeUnit.SECONDS);
+
+        verify(minioService, times(1)).uploadPack(anyString(), any(), eq(14));
+        assertEquals("abcdefghijklmn", written.get());
+        assertTrue(location.packPath().startsWith(MinioService.tmpDatePrefix(LocalDate.now()) + "packs/"));
+        assertEquals(0, first.get().offset());
+        assertEquals(0, duplicate.get().offset());
+        assertEquals(4, second.get().offset());
+        assertEquals(8, location.offset());
+        assertEquals(6, location.length());
+        assertEquals(location.packPath(), first.get().packPath());
+    }
+
+    @Test
+    void add_WritesPartialPackAfterLinger() throws Exception {
+        ReflectionTestUtils.setField(packer, "lingerMs", 20L);
+
+        SmallFilePacker.PackedFile location = packer.add("h1", bytes("abc")).get(5, TimeUnit.SECONDS);
+
+        verify(minioService).uploadPack(eq(location.packPath()), any(), eq(3));
+        assertEquals(0, location.offset());
+    }
+
+    @Test
+    void add_ReusesRangePackedToday() {
+        String packPath = MinioService.packObjectName(LocalDate.now(), "p1");
+        when(mongoTemplate.findById("h1", PackIndexEntry.class))
+                .thenReturn(PackIndexEntry.builder().id("h1").packPath(packPath).offset(40).length(4).build());
+
+        SmallFilePacker.PackedFile location = packer.add("h1", bytes("abcd")).join();
+
+        assertEquals(new SmallFilePacker.PackedFile(packPath, 40, 4), location);
+        verifyNoInteractions(minioService);
+    }
+
+    @Test
+    void add_PacksAgainWhenIndexedPackIsFromAnEarlierDay() {
+        String oldPack = MinioService.packObjectName(LocalDate.now().minusDays(3), "p1");
+        when(mongoTemplate.findById("h1", PackIndexEntry.class))
+                .thenReturn(PackIndexEntry.builder().id("h1").packPath(oldPack).offset(40).length(12).build());
+
+        SmallFilePacker.PackedFile location = packer.add("h1", bytes("abcdefghijkl")).join();
+
+        assertNotEquals(oldPack, location.packPath());
+        verify(minioService).uploadPack(eq(location.packPath()), any(), eq(12));
+    }
+
+    @Test
+    void add_FailsEveryFileOfAPackThatCouldNotBeWritten() {
+        doThrow(new RuntimeException("minio down")).when(minioService).uploadPack(anyString(), any(), anyInt());
+
+        CompletableFuture<SmallFilePacker.PackedFile> first = packer.add("h1", bytes("abcdef"));
+        CompletableFuture<SmallFilePacker.PackedFile> second = packer.add("h2", bytes("ghijkl"));
+
+        assertThrows(CompletionException.class, second::join);
+        assertThrows(CompletionException.class, first::join);
+        assertTrue(takeProblems().get(0).startsWith("ERROR Failed to write pack "));
+    }
+
+    @Test
+    void shutdown_WritesTheOpenPack() {
+        CompletableFuture<SmallFilePacker.PackedFile> pending = packer.add("h1", bytes("abc"));
+
+        packer.shutdown();
+
+        assertTrue(pending.isDone());
+        verify(minioService).uploadPack(anyString(), argThat(content -> Arrays.equals(
+                Arrays.copyOf(content, 3), bytes("abc"))), eq(3));
+    }
+
+    @Test
+    void shutdown_FailsQueuedPacksItCouldNotWrite() throws Exception {
+        ReflectionTestUtils.setField(packer, "shutdownTimeoutMs", 100L);
+        CountDownLatch uploading = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            uploading.countDown();
+            new CountDownLatch(1).await(); // Stuck until interrupted by shutdownNow
+            return null;
+        }).when(minioService).uploadPack(anyString(), any(), anyInt());
+
+        CompletableFuture<SmallFilePacker.PackedFile> stuck = packer.add("h1", bytes("abcdefghijkl"));
+        assertTrue(uploading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<SmallFilePacker.PackedFile> queued = packer.add("h2", bytes("mnopqrstuvwx"));
+
+        packer.shutdown();
+
+        CompletionException failure = assertThrows(CompletionException.class, queued::join);
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertThrows(CompletionException.class, stuck::join);
+        verify(minioService, times(1)).uploadPack(anyString(), any(), anyInt());
+        List<String> problems = takeProblems();
+        assertTrue(problems.contains("WARN Pack flusher did not finish within 100 ms"), problems::toString);
+        assertTrue(problems.stream().anyMatch(line -> line.startsWith("ERROR Failed to write pack ")
+                && line.endsWith(" with 1 files")), problems::toString);
+        assertTrue(problems.stream().anyMatch(line -> line.startsWith("ERROR Pack ")
+                && line.endsWith(" with 1 files was not written before shutdown")), problems::toString);
+    }
+
+    @Test
+    void add_RejectedAfterShutdown() {
+        packer.shutdown();
+
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> packer.add("h1", bytes("abc")).join());
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        verifyNoInteractions(minioService);
+    }
+
+    @Test
+    void disabledPackerStartsNoFlusher() {
+        MongoTemplate untouched = mock(MongoTemplate.class);
+        SmallFilePacker disabled = new SmallFilePacker(minioService, untouched);
+        disabled.init();
+
+        assertNull(ReflectionTestUtils.getField(disabled, "flusher"));
+        assertFalse(disabled.accepts(1));
+        disabled.shutdown();
+        verifyNoInteractions(untouched);
+    }
+
+    private List<String> problems() {
+        synchronized (logs) {
+            return logs.list.stream()
+                    .filter(event -> event.getLevel().isGreaterOrEqual(Level.WARN))
+                    .map(event -> event.getLevel() + " " + event.getFormattedMessage())
+                    .toList();
+        }
+    }
+
+    private List<String> takeProblems() {
+        List<String> problems = problems();
+        synchronized (logs) {
+            logs.list.removeIf(event -> event.getLevel().isGreaterOrEqual(Level.WARN));
+        }
+        return problems;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.ingestiongateway.service;
+
+import com.example.ingestiongateway.config.TenantProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantAdmissionControlTest {
+
+    private TenantProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private TenantAdmissionControl admission;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TenantProperties();
+        properties.getDefaults().setMaxConcurrentRequests(2);
+        properties.getDefaults().setMaxConcurrentBytes(DataSize.ofBytes(100));
+        meterRegistry = new SimpleMeterRegistry();
+        admission = new TenantAdmissionControl(properties, meterRegistry);
+    }
+
+    @Test
+    void admit_CapsConcurrentRequestsPerTenantOnly() {
+        TenantAdmissionControl.Permit first = admission.admit("bulk", 10);
+        admission.admit("bulk", 10);
+
+        assertThrows(CapacityExceededException.class, () -> admission.admit("bulk", 10));
+        // Other tenants are unaffected
+        admission.admit("interactive", 10).close();
+
+        first.close();
+        first.close(); // Idempotent
+        admission.admit("bulk", 10);
+        assertEquals(1, meterRegistry.get("ingestion.admission.rejected")
+                .tag("reason", "concurrent-requests").counter().count());
+    }
+
+    @Test
+    void admit_CapsConcurrentBytesButLetsOneLargeRequestThrough() {
+        TenantAdmissionControl.Permit large = admission.admit("bulk", 500);
+        assertThrows(CapacityExceededException.class, () -> admission.admit("bulk", 1));
+
+        large.close();
+        admission.admit("bulk", 60);
+        assertThrows(CapacityExceededException.class, () -> admission.admit("bulk", 60));
+    }
+
+    @Test
+    void admit_RateLimitsOnceBurstIsSpent() {
+        properties.getDefaults().setMaxConcurrentRequests(100);
+        properties.getDefaults().setBurst(3);
+        properties.getDefaults().setRequestsPerSecond(0.001);
+
+        for (int i = 0; i < 3; i++) {
+            admission.admit("bulk", 0).close();
+        }
+        assertThrows(CapacityExceededException.class, () -> admission.admit("bulk", 0));
+    }
+
+    @Test
+    void evictIdle_KeepsTenantsWithRequestsInFlight() {
+        TenantAdmissionControl.Permit permit = admission.admit("bulk", 10);
+        admission.admit("bulk", 10);
+        admission.evictIdle();
+
+        // The in-flight count survived eviction, so the cap still applies
+        assertThrows(CapacityExceededException.class, () -> admission.admit("bulk", 10));
+        permit.close();
+    }
+
+    @Test
+    void reactiveUpload_RejectedBeforePartsAreSubscribed() {
+        admission.admit("bulk", 0);
+        admission.admit("bulk", 0);
+        ReactiveIngestionService service = new ReactiveIngestionService(
+                null, null, null, null, admission, null, null, null);
+        AtomicBoolean subscribed = new AtomicBoolean();
+
+        Flux<PartEvent> parts = Flux.<PartEvent>never().doOnSubscribe(s -> subscribed.set(true));
+        assertThrows(CapacityExceededException.class, () -> service.processUpload(parts, "bulk", 10).block());
+        assertFalse(subscribed.get());
+    }
+}
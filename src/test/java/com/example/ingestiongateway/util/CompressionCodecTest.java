@@ -0,0 +1,107 @@
+package com.example.ingestiongateway.util;
+
+import com.example.ingestiongateway.config.CompressionProperties;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressionCodecTest {
+
+    @Test
+    void compress_RoundTripsAndShrinksCsv() throws IOException {
+        // Several read chunks, so the compressor emits blocks mid-stream
+        byte[] csv = csv(50_000);
+
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            byte[] compressed = readAll(codec.compress(new ByteArrayInputStream(csv), 3), 1000);
+            assertTrue(compressed.length * 2 < csv.length, codec + " compressed to " + compressed.length);
+
+            byte[] restored = readAll(codec.decompress(new ByteArrayInputStream(compressed)), 8192);
+            assertArrayEquals(csv, restored, codec.id());
+        }
+    }
+
+    @Test
+    void compress_RoundTripsEmptyAndIncompressibleContent() throws IOException {
+        byte[] random = new byte[100_000];
+        new Random(7).nextBytes(random);
+
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            for (byte[] content : new byte[][] { new byte[0], random }) {
+                byte[] compressed = readAll(codec.compress(new ByteArrayInputStream(content), 3), 4096);
+                assertArrayEquals(content, readAll(codec.decompress(new ByteArrayInputStream(compressed)), 4096));
+            }
+        }
+    }
+
+    @Test
+    void compress_SingleByteReadsMatchBulkReads() throws IOException {
+        byte[] csv = csv(1_000);
+        InputStream stream = CompressionCodec.ZSTD.compress(new ByteArrayInputStream(csv), 3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = stream.read()) >= 0) {
+            out.write(b);
+        }
+        assertArrayEquals(csv, readAll(CompressionCodec.ZSTD.decompress(
+                new ByteArrayInputStream(out.toByteArray())), 4096));
+    }
+
+    @Test
+    void compress_Lz4UsesBlocksOfTheReadChunkSize() throws IOException {
+        byte[] compressed = readAll(CompressionCodec.LZ4.compress(new ByteArrayInputStream(csv(100)), 0), 4096);
+
+        // Frame descriptor BD byte, after the magic number and FLG: block max size 4 is 64 KB
+        assertEquals(4, (compressed[5] >> 4) & 0x7);
+    }
+
+    @Test
+    void of_ResolvesRecordedIds() {
+        assertEquals(CompressionCodec.ZSTD, CompressionCodec.of("zstd"));
+        assertEquals(CompressionCodec.LZ4, CompressionCodec.of("lz4"));
+        assertThrows(IllegalArgumentException.class, () -> CompressionCodec.of("gzip"));
+    }
+
+    @Test
+    void codecFor_ChoosesByMediaTypeAndSize() {
+        CompressionProperties properties = new CompressionProperties();
+
+        assertEquals(CompressionCodec.ZSTD, properties.codecFor("text/csv; charset=UTF-8", 10_000));
+        assertEquals(CompressionCodec.ZSTD, properties.codecFor("application/JSON", 10_000));
+        assertEquals(CompressionCodec.LZ4, properties.codecFor("text/plain", 10_000));
+        assertNull(properties.codecFor("image/png", 10_000));
+        assertNull(properties.codecFor("text/csv", 100)); // Below min-size
+        assertNull(properties.codecFor(null, 10_000));
+
+        properties.setEnabled(false);
+        assertNull(properties.codecFor("text/csv", 10_000));
+    }
+
+    private static byte[] csv(int rows) {
+        StringBuilder csv = new StringBuilder("id,tenant,amount,created_at\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(i).append(",tenant-").append(i % 17).append(',').append(i * 31 % 10_000)
+                    .append(".00,2026-10-").append(10 + i % 9).append("T12:00:00Z\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readAll(InputStream stream, int readSize) throws IOException {
+        try (stream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[readSize];
+            int read;
+            while ((read = stream.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
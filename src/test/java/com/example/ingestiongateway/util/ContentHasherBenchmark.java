@@ -0,0 +1,90 @@
+package com.example.ingestiongateway.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the previous per-call hashing in MinioService against
+ * {@link ContentHasher}. Run with the GC profiler to see bytes allocated per
+ * operation ({@code gc.alloc.rate.norm}):
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.ingestiongateway.util.ContentHasherBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentHasherBenchmark {
+
+    @Param({ "4096", "262144", "8388608" })
+    private int size;
+
+    private byte[] content;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        content = new byte[size];
+        new Random(42).nextBytes(content);
+        file = Files.createTempFile("hash-bench", ".bin");
+        Files.write(file, content);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public String legacyStream() throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream is = new ByteArrayInputStream(content)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hexString.append(String.format("%02x", b));
+        }
+        return hexString.toString();
+    }
+
+    @Benchmark
+    public String pooledStream() throws IOException {
+        return ContentHasher.sha256Hex(new ByteArrayInputStream(content));
+    }
+
+    @Benchmark
+    public String pooledFile() throws IOException {
+        return ContentHasher.sha256Hex(file);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ContentHasherBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.ingestiongateway.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentHasherTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void toHex_MatchesJdkFormat() {
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        assertEquals(HexFormat.of().formatHex(bytes), ContentHasher.toHex(bytes));
+    }
+
+    @Test
+    void sha256Hex_AllSourcesAgreeWithMessageDigest() throws Exception {
+        // Sizes around the read buffer and the mmap threshold
+        int[] sizes = { 0, 1, ContentHasher.BUFFER_SIZE + 7, (int) ContentHasher.MMAP_THRESHOLD + 13 };
+        Random random = new Random(42);
+
+        for (int size : sizes) {
+            byte[] content = new byte[size];
+            random.nextBytes(content);
+            String expected = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+
+            Path file = tempDir.resolve("content-" + size);
+            Files.write(file, content);
+
+            assertEquals(expected, ContentHasher.sha256Hex(new ByteArrayInputStream(content)), "stream " + size);
+            assertEquals(expected, ContentHasher.sha256Hex(file), "file " + size);
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(size).put(content).flip();
+            assertEquals(expected, ContentHasher.sha256Hex(direct), "buffer " + size);
+            assertEquals(size, direct.remaining(), "buffer position must not move");
+        }
+    }
+
+    @Test
+    void sha256HexFile_HashesMappedFileAcrossSeveralWindows() throws Exception {
+        byte[] content = new byte[(int) ContentHasher.MMAP_THRESHOLD + 1_000_003];
+        new Random(11).nextBytes(content);
+        Path file = tempDir.resolve("windowed");
+        Files.write(file, content);
+        String expected = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+
+        // 1 MB windows: five of them, the last one partial
+        assertEquals(expected, ContentHasher.sha256Hex(file, 1024 * 1024));
+        assertEquals(expected, ContentHasher.sha256Hex(file, content.length)); // Exactly one window
+    }
+
+    @Test
+    void acquire_ReturnsResetHasherAfterClose() {
+        String first;
+        try (ContentHasher hasher = ContentHasher.acquire()) {
+            hasher.update(new byte[] { 1, 2, 3 }, 0, 3);
+            first = hasher.hexDigest();
+        }
+        try (ContentHasher hasher = ContentHasher.acquire()) {
+            hasher.update(new byte[] { 1, 2, 3 }, 0, 3);
+            assertEquals(first, hasher.hexDigest());
+        }
+    }
+
+    @Test
+    void updateWithOutputStream_CopiesWhileHashing() throws Exception {
+        byte[] content = new byte[ContentHasher.BUFFER_SIZE * 3 + 5];
+        new Random(3).nextBytes(content);
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        try (ContentHasher hasher = ContentHasher.acquire()) {
+            assertEquals(content.length, hasher.update(new ByteArrayInputStream(content), copy));
+            assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)),
+                    hasher.hexDigest());
+        }
+        assertArrayEquals(content, copy.toByteArray());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.ingestiongateway.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelTasksTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void map_KeepsOrderAndBoundsParallelism() {
+        List<Integer> items = IntStream.range(0, 50).boxed().toList();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        List<Integer> results = ParallelTasks.map(executor, items, 4, item -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(2);
+            inFlight.decrementAndGet();
+            return item * 2;
+        });
+
+        assertEquals(items.stream().map(i -> i * 2).toList(), results);
+        assertTrue(maxInFlight.get() <= 4, "max in flight was " + maxInFlight.get());
+    }
+
+    @Test
+    void map_RethrowsRuntimeFailureUnchanged() {
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> ParallelTasks.map(executor, List.of(1, 2, 3), 2, item -> {
+                    if (item == 2) {
+                        throw new IllegalArgumentException("bad item");
+                    }
+                    return item;
+                }));
+        assertEquals("bad item", thrown.getMessage());
+    }
+
+    @Test
+    void map_WrapsCheckedFailureWhenRunInline() {
+        CompletionException thrown = assertThrows(CompletionException.class,
+                () -> ParallelTasks.map(executor, List.of(1), 4, item -> {
+                    throw new IOException("disk full");
+                }));
+        assertInstanceOf(IOException.class, thrown.getCause());
+    }
+}
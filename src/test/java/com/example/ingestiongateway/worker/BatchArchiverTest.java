@@ -0,0 +1,116 @@
+package com.example.ingestiongateway.worker;
+
+import com.example.ingestiongateway.model.ArchivedBatchDocument;
+import com.example.ingestiongateway.model.BatchDocument;
+import com.example.ingestiongateway.model.FileMetadata;
+import com.example.ingestiongateway.model.FileTransferRequest;
+import com.example.ingestiongateway.model.InnerRecord;
+import com.example.ingestiongateway.model.UserInputRecord;
+import com.example.ingestiongateway.service.ServerIdentityService;
+import com.mongodb.client.result.DeleteResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchArchiverTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ServerIdentityService serverIdentityService;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @InjectMocks
+    private BatchArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(archiver, "minAgeMinutes", 10L);
+        ReflectionTestUtils.setField(archiver, "batchSize", 2);
+        ReflectionTestUtils.setField(archiver, "maxBatchesPerRun", 5);
+    }
+
+    @Test
+    void archiveDoneBatches_UpsertsSlimCopyThenRemovesFromHotCollection() {
+        BatchDocument done = doneBatch("batch-1");
+        when(mongoTemplate.find(any(Query.class), eq(BatchDocument.class))).thenReturn(List.of(done));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ArchivedBatchDocument.class))
+                .thenReturn(bulkOperations);
+        when(mongoTemplate.remove(any(Query.class), eq(BatchDocument.class)))
+                .thenReturn(DeleteResult.acknowledged(1));
+
+        assertEquals(1, archiver.archiveDoneBatches());
+
+        ArgumentCaptor<Object> archived = ArgumentCaptor.forClass(Object.class);
+        verify(bulkOperations).replaceOne(any(Query.class), archived.capture(), any(FindAndReplaceOptions.class));
+        ArchivedBatchDocument copy = (ArchivedBatchDocument) archived.getValue();
+        assertEquals("batch-1", copy.getId());
+        assertEquals("alice", copy.getUserName());
+        assertEquals(42, copy.getTotalBytes());
+        assertEquals("26/01/02/uuid-1/a.csv", copy.getFiles().get(0).prodPath());
+        assertEquals("text/csv", copy.getFiles().get(0).contentType());
+
+        // Archive write happens before the hot copy is removed
+        var inOrder = inOrder(bulkOperations, mongoTemplate);
+        inOrder.verify(bulkOperations).execute();
+        inOrder.verify(mongoTemplate).remove(any(Query.class), eq(BatchDocument.class));
+    }
+
+    @Test
+    void archiveDoneBatches_LoopsWhileChunksAreFull() {
+        when(mongoTemplate.find(any(Query.class), eq(BatchDocument.class)))
+                .thenReturn(List.of(doneBatch("b1"), doneBatch("b2")))
+                .thenReturn(List.of(doneBatch("b3")));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ArchivedBatchDocument.class))
+                .thenReturn(bulkOperations);
+        when(mongoTemplate.remove(any(Query.class), eq(BatchDocument.class)))
+                .thenReturn(DeleteResult.acknowledged(2), DeleteResult.acknowledged(1));
+
+        assertEquals(3, archiver.archiveDoneBatches());
+        verify(mongoTemplate, times(2)).find(any(Query.class), eq(BatchDocument.class));
+    }
+
+    @Test
+    void scheduleArchive_SkipsOnNonLeader() {
+        ReflectionTestUtils.setField(archiver, "enabled", true);
+        when(serverIdentityService.getServerId()).thenReturn(3);
+
+        archiver.scheduleArchive();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private static BatchDocument doneBatch(String id) {
+        return BatchDocument.builder()
+                .id(id)
+                .serverId(0)
+                .status("DONE")
+                .createdAt(new Date())
+                .ingestionTimestamp(1L)
+                .userInput(new UserInputRecord("alice", "UPLOAD", null))
+                .kafkaMetadataAlpha(List.of(new FileMetadata("a.csv", id, 42,
+                        List.of(new InnerRecord("type", "text/csv")))))
+                .transferRequests(List.of(new FileTransferRequest("26/01/02/hash-1", "uuid-1", "a.csv")))
+                .build();
+    }
+}
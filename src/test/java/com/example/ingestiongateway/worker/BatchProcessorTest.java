@@ -0,0 +1,148 @@
+package com.example.ingestiongateway.worker;
+
+import com.example.ingestiongateway.config.LaneProperties;
+import com.example.ingestiongateway.config.TenantProperties;
+import com.example.ingestiongateway.model.BatchDocument;
+import com.example.ingestiongateway.model.UserInputRecord;
+import com.example.ingestiongateway.service.FaultInjector;
+import com.example.ingestiongateway.service.MinioService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchProcessorTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Mock
+    private MinioService minioService;
+
+    @Mock
+    private ExecutorService transferExecutor;
+
+    @Mock
+    private FaultInjector faultInjector;
+
+    @Mock
+    private Acknowledgment ack;
+
+    @Spy
+    private TenantProperties tenantProperties = new TenantProperties();
+
+    @Spy
+    private LaneProperties laneProperties = new LaneProperties();
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private BatchProcessor batchProcessor;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(batchProcessor, "perFileCost", DataSize.ofKilobytes(256));
+        ReflectionTestUtils.setField(batchProcessor, "fullQueueBackoff", Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchProcessor.stopSchedulers();
+    }
+
+    @Test
+    void queueDepthGauge_RemovedOnceTenantDrains() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(faultInjector).inject(eq(FaultInjector.WORKER_READY));
+        batchProcessor.startSchedulers();
+
+        batchProcessor.processSmallBatchEvent(batch("b1"), ack);
+
+        verify(ack).acknowledge();
+        assertNotNull(depthGauge("tenant-1"));
+        release.countDown();
+        verify(mongoTemplate, timeout(5000)).save(any(BatchDocument.class));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (depthGauge("tenant-1") != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNull(depthGauge("tenant-1"));
+    }
+
+    @Test
+    void fullLaneHandsRecordBackInsteadOfBlockingTheListener() throws Exception {
+        laneProperties.getSmall().setThreads(1);
+        laneProperties.getSmall().setQueueCapacity(1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            running.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(faultInjector).inject(eq(FaultInjector.WORKER_READY));
+        batchProcessor.startSchedulers();
+
+        batchProcessor.processSmallBatchEvent(batch("b1"), ack);
+        assertTrue(running.await(5, TimeUnit.SECONDS)); // b1 is running, the queue is empty
+        batchProcessor.processSmallBatchEvent(batch("b2"), ack); // Fills the queue
+        verify(ack, times(2)).acknowledge();
+
+        long started = System.nanoTime();
+        batchProcessor.processSmallBatchEvent(batch("b3"), ack);
+
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(2));
+        verify(ack).nack(Duration.ofMillis(50));
+        verify(ack, times(2)).acknowledge();
+        release.countDown();
+
+        // Queued when redelivered after the workers have made room
+        long deadline = System.currentTimeMillis() + 5000;
+        while (queueSize() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        batchProcessor.processSmallBatchEvent(batch("b3"), ack);
+        verify(ack, times(3)).acknowledge();
+    }
+
+    private static BatchDocument batch(String id) {
+        return BatchDocument.builder().id(id).status("READY")
+                .userInput(new UserInputRecord("tenant-1", null, null)).build();
+    }
+
+    private double queueSize() {
+        return meterRegistry.get("ingestion.worker.queue.size").tag("lane", "small").gauge().value();
+    }
+
+    private Gauge depthGauge(String tenant) {
+        return meterRegistry.find("ingestion.worker.queue.depth").tag("tenant", tenant).gauge();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.ingestiongateway.worker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.ingestiongateway.worker.FairBatchScheduler.Submission.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FairBatchSchedulerTest {
+
+    @Test
+    void smallBatchFromOtherTenantOvertakesQueuedBulkBatches() throws Exception {
+        FairBatchScheduler<String> scheduler = new FairBatchScheduler<>("test", 100, tenant -> 1);
+        submit(scheduler, "bulk", "b1", 1_000_000, "b1");
+        submit(scheduler, "bulk", "b2", 1_000_000, "b2");
+        submit(scheduler, "bulk", "b3", 1_000_000, "b3");
+        submit(scheduler, "interactive", "i1", 1_000, "i1");
+
+        // b1 was queued first with the same start tag but a larger cost, so i1 finishes earlier
+        assertEquals(List.of("i1", "b1", "b2", "b3"), drain(scheduler));
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void weightsSplitThroughputBetweenBusyTenants() throws Exception {
+        FairBatchScheduler<String> scheduler = new FairBatchScheduler<>("test", 100,
+                tenant -> Map.of("gold", 3).getOrDefault(tenant, 1));
+        for (int i = 0; i < 6; i++) {
+            submit(scheduler, "gold", "g" + i, 100, "g" + i);
+            submit(scheduler, "silver", "s" + i, 100, "s" + i);
+        }
+        assertEquals(6, scheduler.depth("gold"));
+
+        List<String> firstEight = drain(scheduler).subList(0, 8);
+        assertEquals(6, firstEight.stream().filter(item -> item.startsWith("g")).count());
+    }
+
+    @Test
+    void submit_SkipsKeyThatIsQueuedOrRunning() throws Exception {
+        FairBatchScheduler<String> scheduler = new FairBatchScheduler<>("test", 100, tenant -> 1);
+        assertEquals(QUEUED, submit(scheduler, "t", "batch-1", 10, "first"));
+        assertEquals(DUPLICATE, submit(scheduler, "t", "batch-1", 10, "again"));
+
+        assertEquals("first", scheduler.poll(0, TimeUnit.MILLISECONDS));
+        assertEquals(DUPLICATE, submit(scheduler, "t", "batch-1", 10, "while running"));
+
+        scheduler.complete("batch-1");
+        assertEquals(QUEUED, submit(scheduler, "t", "batch-1", 10, "after completion"));
+    }
+
+    @Test
+    void submit_GivesUpWhenQueueStaysFull() throws Exception {
+        FairBatchScheduler<String> scheduler = new FairBatchScheduler<>("test", 2, tenant -> 1);
+        assertEquals(QUEUED, submit(scheduler, "t", "batch-1", 10, "first"));
+        assertEquals(QUEUED, submit(scheduler, "t", "batch-2", 10, "second"));
+
+        long started = System.nanoTime();
+        assertEquals(FULL, scheduler.submit("t", "batch-3", 10, "third", 50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(2, scheduler.size());
+        // A key that is already queued is reported as such even when full
+        assertEquals(DUPLICATE, submit(scheduler, "t", "batch-1", 10, "again"));
+
+        assertEquals("first", scheduler.poll(0, TimeUnit.MILLISECONDS));
+        assertEquals(QUEUED, submit(scheduler, "t", "batch-3", 10, "third"));
+    }
+
+    private static FairBatchScheduler.Submission submit(FairBatchScheduler<String> scheduler, String tenant,
+            String key, long cost, String item) throws InterruptedException {
+        return scheduler.submit(tenant, key, cost, item, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private static List<String> drain(FairBatchScheduler<String> scheduler) throws InterruptedException {
+        List<String> order = new ArrayList<>();
+        String item;
+        while ((item = scheduler.poll(0, TimeUnit.MILLISECONDS)) != null) {
+            order.add(item);
+        }
+        return order;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.ingestiongateway.worker;
+
+import com.example.ingestiongateway.model.BatchDocument;
+import com.example.ingestiongateway.model.FileTransferRequest;
+import com.example.ingestiongateway.service.MinioService;
+import com.example.ingestiongateway.service.ServerIdentityService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TmpBucketCollectorTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MinioService minioService;
+
+    @Mock
+    private ServerIdentityService serverIdentityService;
+
+    @InjectMocks
+    private TmpBucketCollector collector;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(collector, "deleteBatchSize", 2);
+        ReflectionTestUtils.setField(collector, "maxDeletesPerSecond", 100_000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void collect_DeletesOnlyUnreferencedObjectsInBatches() {
+        BatchDocument live = BatchDocument.builder()
+                .transferRequests(List.of(new FileTransferRequest("26/01/02/kept", "uuid", "a.csv")))
+                .build();
+        when(mongoTemplate.find(any(Query.class), eq(BatchDocument.class))).thenReturn(List.of(live));
+        doAnswer(invocation -> {
+            Consumer<String> action = invocation.getArgument(1);
+            List.of("26/01/02/kept", "26/01/02/orphan-1", "26/01/02/orphan-2", "26/01/02/orphan-3")
+                    .forEach(action);
+            return null;
+        }).when(minioService).forEachTmpObject(eq("26/01/02/"), any());
+        when(minioService.removeTmpObjects(anyList())).thenAnswer(invocation -> ((List<String>) invocation
+                .getArgument(0)).size());
+
+        int deleted = collector.collect("26/01/02/");
+
+        assertEquals(3, deleted);
+        verify(minioService).removeTmpObjects(List.of("26/01/02/orphan-1", "26/01/02/orphan-2"));
+        verify(minioService).removeTmpObjects(List.of("26/01/02/orphan-3"));
+        verify(minioService, never()).removeTmpObjects(argThat(names -> names.contains("26/01/02/kept")));
+    }
+
+    @Test
+    void scheduleSweep_SkipsWhenNotServerZero() {
+        ReflectionTestUtils.setField(collector, "enabled", true);
+        when(serverIdentityService.getServerId()).thenReturn(3);
+
+        collector.scheduleSweep();
+
+        verifyNoInteractions(minioService);
+    }
+}